@@ -0,0 +1,20 @@
+package com.example.status.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Outside Spring, Logback falls back to its default configuration and logs DEBUG to the console, so
+     * per-record debug lines (e.g. the parser's key-value fallback) would end up in the measurement.
+     */
+    static void quietLogging() {
+        Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.status.benchmark;
+
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.dao.OrderStateHistoryBatchWriter;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Database stand-ins for benchmarks, so the numbers measure the consumer's own per-record cost.
+ */
+final class InMemoryStores {
+
+    private InMemoryStores() {
+    }
+
+    /**
+     * An OrderCurrentStateDao whose findByStateKey reads a map; every other repository method is unsupported.
+     */
+    static OrderCurrentStateDao currentStateDao(Map<String, OrderCurrentStateEntity> rows) {
+        return (OrderCurrentStateDao) Proxy.newProxyInstance(
+                OrderCurrentStateDao.class.getClassLoader(),
+                new Class<?>[]{OrderCurrentStateDao.class},
+                (proxy, method, args) -> {
+                    if ("findByStateKey".equals(method.getName())) {
+                        return Optional.ofNullable(rows.get((String) args[0]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static Map<String, OrderCurrentStateEntity> newCurrentStateTable() {
+        return new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Applies the current-state upsert in memory and drops the history rows.
+     */
+    static class BatchWriter extends OrderStateHistoryBatchWriter {
+
+        private final Map<String, OrderCurrentStateEntity> currentState;
+
+        BatchWriter(Map<String, OrderCurrentStateEntity> currentState) {
+            super(null, null);
+            this.currentState = currentState;
+        }
+
+        @Override
+        public List<OrderStateHistoryEntity> writeBatch(List<OrderStateHistoryEntity> rows) {
+            for (OrderStateHistoryEntity row : rows) {
+                if (row.getFileId() != null) {
+                    put(OrderCurrentStateEntity.fileKey(row.getFileId()), row);
+                }
+                if (row.getOrderId() != null) {
+                    put(OrderCurrentStateEntity.orderKey(row.getOrderId()), row);
+                }
+            }
+            return rows;
+        }
+
+        private void put(String key, OrderStateHistoryEntity row) {
+            currentState.put(key, new OrderCurrentStateEntity(key, row.getFileId(), row.getOrderId(),
+                    row.getDistributorId(), row.getPreviousState(), row.getCurrentState(),
+                    row.getSourceService(), row.getEventTime()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.status.benchmark;
+
+import com.example.status.dto.StatusEvent;
+import com.example.status.service.StatusEventParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload parsing for the three input shapes the consumer accepts (JSON string, Map, and the
+ * {key:value} fallback), plus the original per-record path (new ObjectMapper, bind to Map,
+ * probe alias spellings) as a baseline. Run with -prof gc to see allocation per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadParsingBenchmark {
+
+    private static final String PAYLOAD = "{\"fileId\":\"FILE001\",\"orderId\":\"ORDER123\",\"distributor_id\":\"42\","
+            + "\"sourceservice\":\"order-service\",\"status\":\"PROCESSING\"}";
+
+    private static final String KEY_VALUE_PAYLOAD = "{fileId:FILE001,orderId:ORDER123,distributor_id:42,"
+            + "sourceservice:order-service,status:PROCESSING}";
+
+    private final StatusEventParser parser = new StatusEventParser();
+
+    private final Map<Object, Object> mapPayload = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Benchmarks.quietLogging();
+        mapPayload.put("fileId", "FILE001");
+        mapPayload.put("orderId", "ORDER123");
+        mapPayload.put("distributor_id", "42");
+        mapPayload.put("sourceservice", "order-service");
+        mapPayload.put("status", "PROCESSING");
+    }
+
+    @Benchmark
+    public StatusEvent typedSharedMapper() {
+        return parser.parse(PAYLOAD);
+    }
+
+    @Benchmark
+    public StatusEvent mapInput() {
+        return parser.parse(mapPayload);
+    }
+
+    @Benchmark
+    public StatusEvent keyValueFallback() {
+        return parser.parse(KEY_VALUE_PAYLOAD);
+    }
+
+    @Benchmark
+    public void legacyMapPerRecord(Blackhole bh) throws Exception {
+        Map<String, Object> payload = new ObjectMapper().readValue(PAYLOAD, Map.class);
+        bh.consume(getStringValue(payload, "sourceservice", "source_service", "sourceService"));
+        bh.consume(getStringValue(payload, "status"));
+        bh.consume(getStringValue(payload, "fileId", "files_id", "file_id"));
+        bh.consume(getStringValue(payload, "orderId", "order_id"));
+        String distributorId = getStringValue(payload, "distributorId", "distributor_id", "firmId", "firm_id");
+        bh.consume(distributorId == null ? null : Integer.valueOf(distributorId));
+    }
+
+    /**
+     * Verbatim copy of the alias probing the consumer used before StatusEvent.
+     */
+    private static String getStringValue(Map<String, Object> map, String... fieldNames) {
+        for (String fieldName : fieldNames) {
+            Object value = map.get(fieldName);
+            if (value != null) {
+                String strValue = String.valueOf(value).trim();
+                if (!strValue.isEmpty() && !"null".equalsIgnoreCase(strValue)) {
+                    return strValue;
+                }
+            }
+        }
+        return null;
+    }
+}
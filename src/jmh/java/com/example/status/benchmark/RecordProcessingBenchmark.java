@@ -0,0 +1,127 @@
+package com.example.status.benchmark;
+
+import com.example.status.dao.OrderStateHistoryBatchWriter;
+import com.example.status.dao.StatusDictionary;
+import com.example.status.dto.StatusEvent;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import com.example.status.service.LatestStateCache;
+import com.example.status.service.PipelineMetrics;
+import com.example.status.service.StatusEventParser;
+import com.example.status.service.StatusTransitionBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record stages of the consumer against in-memory stand-ins for PostgreSQL:
+ * event time extraction, identifier validation and a full parse-build-write-cache pass
+ * (the same steps as StatusStreamConsumer.writeToDatabase). Run with -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordProcessingBenchmark {
+
+    private static final int ORDERS = 10_000;
+
+    private static final String[] STATES = {"RECEIVED", "PROCESSING", "COMPLETED"};
+
+    private StatusEventParser parser;
+    private StatusTransitionBuilder transitionBuilder;
+    private LatestStateCache latestStateCache;
+    private OrderStateHistoryBatchWriter batchWriter;
+
+    private String[] payloads;
+    private int cursor;
+    private long eventMillis;
+
+    private final StatusEvent tradeCapture = new StatusEvent("trade-capture", "RECEIVED", "FILE1", null, null);
+    private final StatusEvent childEvent = new StatusEvent("order-service", "PROCESSING", "FILE1", "ORDER1", 42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Benchmarks.quietLogging();
+
+        Map<String, OrderCurrentStateEntity> currentState = InMemoryStores.newCurrentStateTable();
+        parser = new StatusEventParser();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        latestStateCache = new LatestStateCache(InMemoryStores.currentStateDao(currentState), 100_000,
+                meterRegistry);
+        transitionBuilder = new StatusTransitionBuilder(latestStateCache, new PipelineMetrics(meterRegistry),
+                StatusDictionary.inMemory());
+        batchWriter = new InMemoryStores.BatchWriter(currentState);
+
+        OrderStateHistoryEntity parent = new OrderStateHistoryEntity();
+        parent.setFileId("FILE1");
+        parent.setOrderId("ORDER1");
+        parent.setCurrentState("RECEIVED");
+        parent.setEventTime(LocalDateTime.now());
+        latestStateCache.recordCommitted(List.of(parent));
+
+        payloads = new String[ORDERS * STATES.length];
+        for (int i = 0; i < ORDERS; i++) {
+            for (int s = 0; s < STATES.length; s++) {
+                payloads[i * STATES.length + s] = "{\"orderId\":\"ORDER" + i + "\",\"distributor_id\":\"" + (i % 50)
+                        + "\",\"sourceservice\":\"" + (s == 0 ? "trade-capture" : "order-service")
+                        + "\",\"status\":\"" + STATES[s] + "\"}";
+            }
+        }
+        cursor = 0;
+        eventMillis = 1_700_000_000_000L;
+    }
+
+    @Benchmark
+    public LocalDateTime extractEventTime() {
+        return StatusTransitionBuilder.extractEventTime("1700000000123-7");
+    }
+
+    @Benchmark
+    public StatusEvent validateTradeCapture() {
+        transitionBuilder.validateIdentifiers("1700000000123-0", tradeCapture.sourceService(), true,
+                tradeCapture.fileId(), tradeCapture.orderId(), tradeCapture.distributorId(), Map.of());
+        return tradeCapture;
+    }
+
+    @Benchmark
+    public StatusEvent validateChildEvent() {
+        transitionBuilder.validateIdentifiers("1700000000123-1", childEvent.sourceService(), false,
+                childEvent.fileId(), childEvent.orderId(), childEvent.distributorId(), Map.of());
+        return childEvent;
+    }
+
+    /**
+     * Walks every order through RECEIVED -> PROCESSING -> COMPLETED, one record per invocation.
+     */
+    @Benchmark
+    public OrderStateHistoryEntity writeToDatabasePass() {
+        String payload = payloads[cursor];
+        cursor = (cursor + 1) % payloads.length;
+        String recordId = (eventMillis++) + "-0";
+
+        StatusEvent event = parser.parse(payload);
+        OrderStateHistoryEntity entity = transitionBuilder.build(recordId, event, new HashMap<>());
+        List<OrderStateHistoryEntity> rows = List.of(entity);
+        batchWriter.writeBatch(rows);
+        latestStateCache.recordCommitted(rows);
+        return entity;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.status.loadtest;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test against a running service (e.g. the docker-compose stack). XADDs a mix of
+ * trade-capture parents and order children at a fixed rate, with a share of children sent before
+ * their parent and a share of malformed payloads, then waits for the backlog to drain. Every
+ * {@code --report-interval} seconds it prints what the service itself reports through
+ * /actuator/prometheus: records finished per second, XADD-to-commit p50/p99
+ * ({@code status.consumer.end_to_end}) and consumer lag, plus the stream backlog (XLEN; acked entries
+ * are deleted). The last line is the sustained throughput of the run.
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests test-compile exec:exec -Dloadtest.args="--rate=5000 --duration=120"
+ * </pre>
+ * Options: --redis=redis://localhost:6379 --stream=status-stream --shards=1 --rate=2000 --duration=60
+ * --files=200 --orders-per-file=20 --out-of-order=0.05 --malformed=0.01
+ * --metrics-url=http://localhost:8092/actuator/prometheus --report-interval=5 --drain-timeout=120
+ */
+public final class LoadGenerator {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final String[] CHILD_STATES = {"PROCESSING", "COMPLETED"};
+
+    private final Map<String, String> options;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final List<String> streams = new ArrayList<>();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36).toUpperCase(Locale.ROOT);
+    private final List<ArrayDeque<Event>> activeFiles = new ArrayList<>();
+    private long fileSeq;
+    private int nextFile;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        String stream = option("stream", "status-stream");
+        int shards = Integer.parseInt(option("shards", "1"));
+        if (shards <= 1) {
+            streams.add(stream);
+        } else {
+            for (int i = 0; i < shards; i++) {
+                streams.add(stream + ":" + i);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private void run() throws Exception {
+        int rate = Integer.parseInt(option("rate", "2000"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "60")));
+        long reportNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("report-interval", "5")));
+        long drainNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("drain-timeout", "120")));
+        String metricsUrl = option("metrics-url", "http://localhost:8092/actuator/prometheus");
+
+        RedisClient client = RedisClient.create(option("redis", "redis://localhost:6379"));
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisAsyncCommands<String, String> redis = connection.async();
+            connection.setAutoFlushCommands(false);
+
+            Snapshot baseline = snapshot(metricsUrl, connection);
+            Snapshot last = baseline;
+            int files = Integer.parseInt(option("files", "200"));
+            for (int i = 0; i < files; i++) {
+                activeFiles.add(newFile());
+            }
+            long start = System.nanoTime();
+            long nextReport = start + reportNanos;
+            long sent = 0;
+            System.out.printf(Locale.ROOT, "%8s %10s %12s %12s %10s %10s %10s%n",
+                    "elapsed", "sent", "sent/s", "done/s", "p50 ms", "p99 ms", "backlog");
+
+            while (System.nanoTime() - start < durationNanos) {
+                long due = (System.nanoTime() - start) * rate / TimeUnit.SECONDS.toNanos(1);
+                List<RedisFuture<String>> futures = new ArrayList<>();
+                while (sent < due) {
+                    Event event = nextEvent();
+                    futures.add(redis.xadd(event.stream(), Map.of("payload", event.payload())));
+                    sent++;
+                }
+                connection.flushCommands();
+                for (RedisFuture<String> future : futures) {
+                    future.get(5, TimeUnit.SECONDS);
+                }
+                if (System.nanoTime() >= nextReport) {
+                    last = report(metricsUrl, connection, start, sent, last);
+                    nextReport += reportNanos;
+                }
+                LockSupport.parkNanos(TICK_NANOS);
+            }
+
+            long drainStart = System.nanoTime();
+            while (backlog(connection) > 0 && System.nanoTime() - drainStart < drainNanos) {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(reportNanos));
+                last = report(metricsUrl, connection, start, sent, last);
+            }
+
+            Snapshot end = snapshot(metricsUrl, connection);
+            double seconds = (end.nanos() - baseline.nanos()) / 1e9;
+            System.out.printf(Locale.ROOT, "%nSENT %d records at a target of %d/s; service finished %d in %.1f s%n",
+                    sent, rate, (long) (end.done() - baseline.done()), seconds);
+            System.out.printf(Locale.ROOT, "SUSTAINED %.0f records/s, end-to-end p50 %.1f ms, p99 %.1f ms, backlog %d%n",
+                    (end.done() - baseline.done()) / seconds, end.p50Ms(), end.p99Ms(), end.backlog());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Round-robin over {@code --files} files in flight, so events of different files interleave the way
+     * they do in production while each file's own events keep their order.
+     */
+    private Event nextEvent() {
+        ArrayDeque<Event> file = activeFiles.get(nextFile);
+        Event event = file.poll();
+        if (file.isEmpty()) {
+            activeFiles.set(nextFile, newFile());
+        }
+        nextFile = (nextFile + 1) % activeFiles.size();
+        return event;
+    }
+
+    /**
+     * One file: its trade-capture parent and the order events under it. With probability
+     * {@code out-of-order} a child is moved in front of the parent; with {@code malformed} a payload
+     * is replaced by one the service must dead-letter.
+     */
+    private ArrayDeque<Event> newFile() {
+        int ordersPerFile = Integer.parseInt(option("orders-per-file", "20"));
+        double outOfOrder = Double.parseDouble(option("out-of-order", "0.05"));
+        double malformed = Double.parseDouble(option("malformed", "0.01"));
+
+        String fileId = "LOAD-" + runId + "-" + fileSeq++;
+        String stream = streams.get(Math.floorMod(fileId.hashCode(), streams.size()));
+        List<Event> events = new ArrayList<>(1 + ordersPerFile * CHILD_STATES.length);
+        events.add(new Event(stream, "{\"fileId\":\"" + fileId + "\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"));
+        for (int o = 0; o < ordersPerFile; o++) {
+            for (String state : CHILD_STATES) {
+                events.add(new Event(stream, "{\"fileId\":\"" + fileId + "\",\"orderId\":\"" + fileId + "-O" + o
+                        + "\",\"distributor_id\":\"" + (o % 50) + "\",\"sourceservice\":\"order-service\",\"status\":\""
+                        + state + "\"}"));
+            }
+        }
+        if (events.size() > 1 && random.nextDouble() < outOfOrder) {
+            events.add(0, events.remove(1));
+        }
+        for (int i = 0; i < events.size(); i++) {
+            if (random.nextDouble() < malformed) {
+                String broken = random.nextBoolean() ? "{\"fileId\":\"" + fileId + "\",\"status\":" : "{\"sourceservice\":\"order-service\"}";
+                events.set(i, new Event(stream, broken));
+            }
+        }
+        return new ArrayDeque<>(events);
+    }
+
+    private Snapshot report(String metricsUrl, StatefulRedisConnection<String, String> connection, long start,
+            long sent, Snapshot previous) {
+        Snapshot now = snapshot(metricsUrl, connection);
+        double interval = (now.nanos() - previous.nanos()) / 1e9;
+        double elapsed = (now.nanos() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%7.0fs %10d %12.0f %12.0f %10.1f %10.1f %10d%n",
+                elapsed, sent, sent / elapsed, (now.done() - previous.done()) / interval,
+                now.p50Ms(), now.p99Ms(), now.backlog());
+        return now;
+    }
+
+    private Snapshot snapshot(String metricsUrl, StatefulRedisConnection<String, String> connection) {
+        String text = "";
+        try {
+            text = http.send(HttpRequest.newBuilder(URI.create(metricsUrl)).timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } catch (Exception e) {
+            System.err.println("Metrics unavailable: " + e.getMessage());
+        }
+        double done = sum(text, "status_consumer_records_total", "outcome=\"acked\"")
+                + sum(text, "status_consumer_records_total", "outcome=\"dead_lettered\"");
+        double p50 = sum(text, "status_consumer_end_to_end_seconds", "quantile=\"0.5\"") * 1000;
+        double p99 = sum(text, "status_consumer_end_to_end_seconds", "quantile=\"0.99\"") * 1000;
+        return new Snapshot(System.nanoTime(), done, p50, p99, backlog(connection));
+    }
+
+    private long backlog(StatefulRedisConnection<String, String> connection) {
+        long total = 0;
+        for (String stream : streams) {
+            RedisFuture<Long> length = connection.async().xlen(stream);
+            connection.flushCommands();
+            try {
+                total += length.get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums the samples of one metric whose labels contain {@code label}, from Prometheus text format.
+     */
+    static double sum(String text, String metric, String label) {
+        double total = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith(metric + "{") && line.contains(label)) {
+                total += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        return total;
+    }
+
+    private record Event(String stream, String payload) {
+    }
+
+    private record Snapshot(long nanos, double done, double p50Ms, double p99Ms, long backlog) {
+    }
+}
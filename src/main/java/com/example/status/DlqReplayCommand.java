@@ -0,0 +1,72 @@
+package com.example.status;
+
+import com.example.status.dto.DlqReplayRequest;
+import com.example.status.dto.DlqReplayStatus;
+import com.example.status.service.DlqReplayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * CLI mode: {@code java -jar status.jar --replay-dlq [--reason=..] [--source-service=..] [--from=<ISO instant>]
+ * [--to=<ISO instant>] [--limit=N] [--rate=N]} replays the DLQ once and exits, 0 when the replay completed.
+ * {@link StatusApplication} starts this mode without the web server and without the stream consumer.
+ */
+@Component
+public class DlqReplayCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayCommand.class);
+
+    static final String OPTION = "replay-dlq";
+
+    // DlqReplayer is lazy: instances that never replay (consumer-only pods) do not build it.
+    private final ObjectProvider<DlqReplayer> dlqReplayer;
+    private int exitCode;
+
+    public DlqReplayCommand(ObjectProvider<DlqReplayer> dlqReplayer) {
+        this.dlqReplayer = dlqReplayer;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        DlqReplayRequest request = new DlqReplayRequest(
+                option(args, "reason"),
+                option(args, "source-service"),
+                instant(option(args, "from")),
+                instant(option(args, "to")),
+                number(option(args, "limit")),
+                number(option(args, "rate")) == null ? null : number(option(args, "rate")).intValue());
+        DlqReplayStatus status = dlqReplayer.getObject().replay(request);
+        log.info("DLQ replay {}: scanned={} replayed={} skipped={} last={}", status.state(), status.scanned(),
+                status.replayed(), status.skipped(), status.lastEntryId());
+        exitCode = "COMPLETED".equals(status.state()) ? 0 : 1;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static Instant instant(String value) {
+        return value == null ? null : Instant.parse(value);
+    }
+
+    private static Long number(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+}
@@ -1,16 +1,41 @@
 package com.example.status;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Arrays;
+import java.util.List;
+
 @SpringBootApplication
 @EnableScheduling
 public class StatusApplication {
 
+	static final String MIGRATE_OPTION = "migrate";
+
 	public static void main(String[] args) {
+		List<String> options = Arrays.asList(args);
+		if (options.contains("--" + DlqReplayCommand.OPTION)) {
+			// One-off replay: no HTTP server, and this process must not join the consumer group.
+			runOnce(args, "--app.consumer.enabled=false", "--app.api.enabled=false");
+		}
+		if (options.contains("--" + MIGRATE_OPTION)) {
+			// Schema job, e.g. an init container: Flyway migrates during startup and the process exits,
+			// so the long-running instances can start with STATUS_FLYWAY_ENABLED=false.
+			runOnce(args, "--app.consumer.enabled=false", "--app.api.enabled=false",
+					"--app.history.maintenance-enabled=false", "--spring.flyway.enabled=true");
+		}
 		SpringApplication.run(StatusApplication.class, args);
 	}
 
-}
\ No newline at end of file
+	private static void runOnce(String[] args, String... overrides) {
+		SpringApplication application = new SpringApplication(StatusApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		String[] allArgs = Arrays.copyOf(args, args.length + overrides.length);
+		System.arraycopy(overrides, 0, allArgs, args.length, overrides.length);
+		System.exit(SpringApplication.exit(application.run(allArgs)));
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.example.status.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Two independently sized Hikari pools behind one DataSource. The write pool
+ * ({@code spring.datasource.*}, {@code spring.datasource.hikari.*}) serves the consumer, Flyway and
+ * everything outside a read-only transaction. The read pool ({@code app.datasource.read.*}) serves
+ * {@code @Transactional(readOnly = true)} API reads and points at a replica when one is configured,
+ * otherwise at the primary with its own connections, so API traffic cannot starve ingestion.
+ * Turned off with {@code app.datasource.read-write-split=false}, which leaves Boot's single pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.read-write-split", havingValue = "true", matchIfMissing = true)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.read.hikari")
+    public HikariDataSource readDataSource(@Value("${app.datasource.read.url}") String url,
+            @Value("${app.datasource.read.username}") String username,
+            @Value("${app.datasource.read.password}") String password) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    /**
+     * The proxy hands out a placeholder connection and only picks a pool at the first statement, once the
+     * transaction has marked the connection read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+            @Qualifier("readDataSource") DataSource readDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writeDataSource);
+        proxy.setReadOnlyDataSource(readDataSource);
+        return proxy;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.status.controller;
+
+import com.example.status.dto.DlqReplayRequest;
+import com.example.status.dto.DlqReplayStatus;
+import com.example.status.service.DlqReplayer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+
+//POST http://localhost:8080/api/admin/dlq/replay  -H 'X-Admin-Token: ...'  {"reason":"timeout","sourceService":"order-service","ratePerSecond":500}
+/**
+ * Every call must carry {@code app.api.admin-token} in the {@value #TOKEN_HEADER} header; while no token is
+ * configured the endpoint refuses everything.
+ */
+@RestController
+@ConditionalOnProperty(name = "app.api.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/api/admin/dlq/replay")
+public class DlqReplayController {
+
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final DlqReplayer dlqReplayer;
+    private final byte[] adminToken;
+
+    public DlqReplayController(DlqReplayer dlqReplayer, @Value("${app.api.admin-token:}") String adminToken) {
+        this.dlqReplayer = dlqReplayer;
+        this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping
+    public ResponseEntity<DlqReplayStatus> startReplay(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+            @RequestBody(required = false) DlqReplayRequest request) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        DlqReplayRequest replay = request != null ? request : new DlqReplayRequest(null, null, null, null, null, null);
+        if (replay.from() != null && replay.to() != null && replay.from().isAfter(replay.to())) {
+            return ResponseEntity.badRequest().build();
+        }
+        DlqReplayStatus status = dlqReplayer.start(replay);
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(dlqReplayer.status());
+        }
+        return ResponseEntity.accepted().body(status);
+    }
+
+    @GetMapping
+    public ResponseEntity<DlqReplayStatus> getReplay(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        DlqReplayStatus status = dlqReplayer.status();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<DlqReplayStatus> cancelReplay(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!dlqReplayer.cancel()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(dlqReplayer.status());
+    }
+
+    /**
+     * Constant-time comparison, so the token cannot be guessed from response times.
+     */
+    private boolean authorized(String token) {
+        return adminToken.length > 0 && token != null
+                && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
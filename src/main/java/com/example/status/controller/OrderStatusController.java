@@ -1,26 +1,157 @@
 package com.example.status.controller;
 
-import com.example.status.entity.OrderStateHistoryEntity;
+import com.example.status.dto.OrderHistoryEntry;
+import com.example.status.dto.OrderHistoryPage;
+import com.example.status.dto.OrderStatusBatchRequest;
+import com.example.status.dto.OrderStatusBatchResponse;
+import com.example.status.dto.OrderStatusView;
 import com.example.status.service.OrderStatusService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
 //http://localhost:8080/api/orders/4f836855-03f0-4cb1-abf8-147a8de9b405/status
 @RestController
+@ConditionalOnProperty(name = "app.api.enabled", havingValue = "true", matchIfMissing = true)
 @RequestMapping("/api/orders")
 public class OrderStatusController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final OrderStatusService orderStatusService;
+    private final ObjectWriter historyWriter;
+
+    @Value("${app.api.status-batch.max-ids:1000}")
+    private int MAX_BATCH_IDS;
 
-    public OrderStatusController(OrderStatusService orderStatusService) {
+    @Value("${app.api.history.max-page-size:500}")
+    private int MAX_HISTORY_PAGE_SIZE;
+
+    public OrderStatusController(OrderStatusService orderStatusService, ObjectMapper objectMapper) {
         this.orderStatusService = orderStatusService;
+        this.historyWriter = objectMapper.writerFor(OrderHistoryEntry.class);
     }
 
     @GetMapping("/{orderId}/status")
-    public ResponseEntity<OrderStateHistoryEntity> getOrderStatus(@PathVariable String orderId) {
-        return orderStatusService.getLatestOrderStatus(orderId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<OrderStatusView> getOrderStatus(@PathVariable String orderId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<OrderStatusView> status = orderStatusService.getLatestOrderStatus(orderId);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = status.get().etag();
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(status.get());
+    }
+
+    //POST http://localhost:8080/api/orders/status:batch  {"orderIds": ["ORDER1", "ORDER2"]}
+    @PostMapping("/status:batch")
+    public ResponseEntity<OrderStatusBatchResponse> getOrderStatuses(@RequestBody OrderStatusBatchRequest body,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (body == null || body.orderIds() == null || body.orderIds().isEmpty()
+                || body.orderIds().size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        OrderStatusBatchResponse statuses = orderStatusService.getLatestOrderStatuses(body.orderIds());
+        String etag = statuses.etag();
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(statuses);
+    }
+
+    //http://localhost:8080/api/orders/ORDER1/history?limit=100&cursor=<nextCursor>
+    @GetMapping(value = "/{orderId}/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderHistoryPage> getOrderHistory(@PathVariable String orderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(orderStatusService.getOrderHistory(orderId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //http://localhost:8080/api/orders/history?fileId=FILE001&limit=100&cursor=<nextCursor>
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderHistoryPage> getFileHistory(@RequestParam String fileId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(orderStatusService.getFileHistory(fileId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //curl -H 'Accept: application/x-ndjson' http://localhost:8080/api/orders/ORDER1/history
+    @GetMapping(value = "/{orderId}/history", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportOrderHistory(@PathVariable String orderId) {
+        return ndjson(out -> orderStatusService.exportOrderHistory(orderId, line(out)));
+    }
+
+    //curl -H 'Accept: application/x-ndjson' 'http://localhost:8080/api/orders/history?fileId=FILE001'
+    @GetMapping(value = "/history", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportFileHistory(@RequestParam String fileId) {
+        return ndjson(out -> orderStatusService.exportFileHistory(fileId, line(out)));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * Writes each entry as one JSON line; the response streams while later pages are still being read.
+     */
+    private Consumer<OrderHistoryEntry> line(OutputStream out) {
+        return entry -> {
+            try {
+                out.write(historyWriter.writeValueAsBytes(entry));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Checked by hand rather than with WebRequest.checkNotModified, which ignores If-None-Match on POST.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,64 @@
+package com.example.status.controller;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.service.OrderStatusService;
+import com.example.status.service.StatusChangeHub;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+
+//curl -N http://localhost:8080/api/orders/4f836855-03f0-4cb1-abf8-147a8de9b405/status/stream
+/**
+ * Server-sent events for one order or file. Transitions committed on any instance reach these streams through
+ * {@link com.example.status.service.StatusChangeRelay}, so clients may connect to whichever instance serves the API.
+ */
+@RestController
+@ConditionalOnProperty(name = "app.api.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/api")
+public class StatusStreamController {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final OrderStatusService orderStatusService;
+    private final StatusChangeHub statusChangeHub;
+
+    public StatusStreamController(OrderStatusService orderStatusService, StatusChangeHub statusChangeHub) {
+        this.orderStatusService = orderStatusService;
+        this.statusChangeHub = statusChangeHub;
+    }
+
+    @GetMapping(value = "/orders/{orderId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrderStatus(@PathVariable String orderId,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        return subscribe(OrderCurrentStateEntity.orderKey(orderId),
+                () -> orderStatusService.getLatestOrderStatus(orderId), lastEventId);
+    }
+
+    @GetMapping(value = "/files/{fileId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamFileStatus(@PathVariable String fileId,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        return subscribe(OrderCurrentStateEntity.fileKey(fileId),
+                () -> orderStatusService.getLatestFileStatus(fileId), lastEventId);
+    }
+
+    /**
+     * The current state is read after subscribing and goes out first unless the client reconnects with it
+     * as Last-Event-ID (event ids are the same ETags the status endpoints return).
+     */
+    private ResponseEntity<SseEmitter> subscribe(String key, Supplier<Optional<OrderStatusView>> current,
+            String lastEventId) {
+        SseEmitter emitter = statusChangeHub.subscribe(key, current, lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.status.dao;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One dictionary-encoded vocabulary: names such as {@code RECEIVED} or {@code trade-capture} and their
+ * SMALLINT codes. Both directions are served from memory; a name or code not seen yet reloads the whole
+ * (small) table from the {@link Store}, and a name that is still unknown is added there first. Every name
+ * is held once, so {@link #intern} hands out the same String instance for equal names.
+ */
+public final class CodeTable {
+
+    /**
+     * Backing lookup table. Codes are assigned by the store and never change.
+     */
+    public interface Store {
+
+        Map<String, Short> loadAll();
+
+        void add(String name);
+    }
+
+    private final String vocabulary;
+    private final Store store;
+    private final int maxEntries;
+    private final Map<String, Short> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    public CodeTable(String vocabulary, Store store, int maxEntries) {
+        this.vocabulary = vocabulary;
+        this.store = store;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * A table that lives only in memory, for tests and benchmarks.
+     */
+    public static CodeTable inMemory(String vocabulary) {
+        return inMemory(vocabulary, Short.MAX_VALUE);
+    }
+
+    public static CodeTable inMemory(String vocabulary, int maxEntries) {
+        Map<String, Short> rows = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger(1);
+        return new CodeTable(vocabulary, new Store() {
+            @Override
+            public Map<String, Short> loadAll() {
+                return Map.copyOf(rows);
+            }
+
+            @Override
+            public void add(String name) {
+                rows.computeIfAbsent(name, n -> (short) next.getAndIncrement());
+            }
+        }, maxEntries);
+    }
+
+    /**
+     * The shared instance of {@code name}, registering it when it is new; null stays null.
+     *
+     * @throws VocabularyFullException when the vocabulary already holds {@code maxEntries} names
+     */
+    public String intern(String name) {
+        return name == null ? null : name(code(name));
+    }
+
+    /**
+     * @throws VocabularyFullException when the vocabulary already holds {@code maxEntries} names
+     */
+    public short code(String name) {
+        Short code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            reload();
+            if (!codes.containsKey(name)) {
+                if (codes.size() >= maxEntries) {
+                    throw new VocabularyFullException("Too many distinct " + vocabulary + " values ("
+                            + codes.size() + "), rejecting '" + name + "'");
+                }
+                store.add(name);
+                reload();
+            }
+            code = codes.get(name);
+        }
+        if (code == null) {
+            throw new IllegalStateException("No code for " + vocabulary + " '" + name + "'");
+        }
+        return code;
+    }
+
+    public String name(short code) {
+        String[] current = names;
+        if (code >= 0 && code < current.length && current[code] != null) {
+            return current[code];
+        }
+        synchronized (this) {
+            reload();
+            current = names;
+        }
+        if (code < 0 || code >= current.length || current[code] == null) {
+            throw new IllegalStateException("Unknown " + vocabulary + " code " + code);
+        }
+        return current[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Adds rows from the store; names already held keep their instance.
+     */
+    private void reload() {
+        Map<String, Short> loaded = store.loadAll();
+        String[] grown = names.clone();
+        for (Map.Entry<String, Short> row : loaded.entrySet()) {
+            short code = row.getValue();
+            if (code < 0) {
+                continue;
+            }
+            if (code >= grown.length) {
+                grown = Arrays.copyOf(grown, Math.max(code + 1, grown.length * 2));
+            }
+            if (grown[code] == null) {
+                grown[code] = row.getKey();
+            }
+        }
+        for (int code = 0; code < grown.length; code++) {
+            if (grown[code] != null) {
+                codes.putIfAbsent(grown[code], (short) code);
+            }
+        }
+        names = grown;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.status.dao;
+
+import com.example.status.entity.OrderCurrentStateEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * The inherited finders are read-only, so API reads that call them go to the read pool.
+ */
+public interface OrderCurrentStateDao extends JpaRepository<OrderCurrentStateEntity, String> {
+
+    /**
+     * The consumer's previous-state lookup. Read-write on purpose: it runs outside any transaction and must
+     * see the primary, never a lagging replica.
+     */
+    @Transactional
+    Optional<OrderCurrentStateEntity> findByStateKey(String stateKey);
+}
@@ -0,0 +1,179 @@
+package com.example.status.dao;
+
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk insert path for order_state_history. All rows of a batch go to PostgreSQL as one
+ * {@code INSERT ... SELECT FROM unnest(arrays)} statement in one transaction. Hibernate's IDENTITY
+ * id generation cannot batch, so the consumer writes through here instead of OrderStateHistoryDao.save.
+ * Rows are keyed by their stream entry: {@code ON CONFLICT DO NOTHING} skips entries that were already
+ * written, and RETURNING reports which rows were actually new. Only those go on to upsert
+ * order_current_state in the same transaction, so a redelivered entry cannot rewrite the state chain.
+ * States and source services are written as their {@link StatusDictionary} codes.
+ */
+@Repository
+public class OrderStateHistoryBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO order_state_history "
+            + "(stream_key, stream_record_id, file_id, order_id, distributor_id, previous_state_code, "
+            + "current_state_code, source_service_code, event_time) "
+            + "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::integer[], "
+            + "?::smallint[], ?::smallint[], ?::smallint[], ?::timestamp[]) "
+            + "ON CONFLICT DO NOTHING RETURNING stream_key, stream_record_id";
+
+    private static final String UPSERT_CURRENT_SQL = "INSERT INTO order_current_state "
+            + "(state_key, file_id, order_id, distributor_id, previous_state_code, current_state_code, "
+            + "source_service_code, event_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (state_key) DO UPDATE SET "
+            + "file_id = EXCLUDED.file_id, order_id = EXCLUDED.order_id, distributor_id = EXCLUDED.distributor_id, "
+            + "previous_state_code = EXCLUDED.previous_state_code, current_state_code = EXCLUDED.current_state_code, "
+            + "source_service_code = EXCLUDED.source_service_code, event_time = EXCLUDED.event_time "
+            + "WHERE order_current_state.event_time <= EXCLUDED.event_time";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatusDictionary dictionary;
+
+    public OrderStateHistoryBatchWriter(JdbcTemplate jdbcTemplate, StatusDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Rows must be in event order: when several rows share a key, the last one becomes the current state.
+     * Returns the rows that were inserted, in input order; rows whose stream entry already has a history
+     * row are left out.
+     */
+    @Transactional
+    public List<OrderStateHistoryEntity> writeBatch(List<OrderStateHistoryEntity> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Set<String> insertedEntries = new HashSet<>(jdbcTemplate.query(con -> insertStatement(con, rows),
+                (rs, rowNum) -> entryKey(rs.getString(1), rs.getString(2))));
+        List<OrderStateHistoryEntity> inserted = new ArrayList<>(rows.size());
+        for (OrderStateHistoryEntity row : rows) {
+            if (row.getStreamRecordId() == null
+                    || insertedEntries.contains(entryKey(row.getStreamKey(), row.getStreamRecordId()))) {
+                inserted.add(row);
+            }
+        }
+        if (inserted.isEmpty()) {
+            return inserted;
+        }
+
+        List<Map.Entry<String, OrderStateHistoryEntity>> current = new ArrayList<>(latestByKey(inserted).entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_CURRENT_SQL, current, current.size(), (ps, entry) -> {
+            OrderStateHistoryEntity row = entry.getValue();
+            ps.setString(1, entry.getKey());
+            ps.setString(2, row.getFileId());
+            ps.setString(3, row.getOrderId());
+            setDistributorId(ps, 4, row.getDistributorId());
+            setCode(ps, 5, stateCode(row.getPreviousState()));
+            setCode(ps, 6, stateCode(row.getCurrentState()));
+            setCode(ps, 7, sourceServiceCode(row.getSourceService()));
+            ps.setTimestamp(8, Timestamp.valueOf(row.getEventTime()));
+        });
+        return inserted;
+    }
+
+    private PreparedStatement insertStatement(Connection con, List<OrderStateHistoryEntity> rows)
+            throws SQLException {
+        int n = rows.size();
+        String[] streamKeys = new String[n];
+        String[] recordIds = new String[n];
+        String[] fileIds = new String[n];
+        String[] orderIds = new String[n];
+        Integer[] distributorIds = new Integer[n];
+        Short[] previousStates = new Short[n];
+        Short[] currentStates = new Short[n];
+        Short[] sourceServices = new Short[n];
+        Timestamp[] eventTimes = new Timestamp[n];
+        for (int i = 0; i < n; i++) {
+            OrderStateHistoryEntity row = rows.get(i);
+            streamKeys[i] = row.getStreamKey();
+            recordIds[i] = row.getStreamRecordId();
+            fileIds[i] = row.getFileId();
+            orderIds[i] = row.getOrderId();
+            distributorIds[i] = row.getDistributorId();
+            previousStates[i] = stateCode(row.getPreviousState());
+            currentStates[i] = stateCode(row.getCurrentState());
+            sourceServices[i] = sourceServiceCode(row.getSourceService());
+            eventTimes[i] = Timestamp.valueOf(row.getEventTime());
+        }
+        PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+        ps.setArray(1, con.createArrayOf("varchar", streamKeys));
+        ps.setArray(2, con.createArrayOf("varchar", recordIds));
+        ps.setArray(3, con.createArrayOf("varchar", fileIds));
+        ps.setArray(4, con.createArrayOf("varchar", orderIds));
+        ps.setArray(5, con.createArrayOf("integer", distributorIds));
+        ps.setArray(6, con.createArrayOf("smallint", previousStates));
+        ps.setArray(7, con.createArrayOf("smallint", currentStates));
+        ps.setArray(8, con.createArrayOf("smallint", sourceServices));
+        ps.setArray(9, con.createArrayOf("timestamp", eventTimes));
+        return ps;
+    }
+
+    private Short stateCode(String state) {
+        return state == null ? null : dictionary.states().code(state);
+    }
+
+    private Short sourceServiceCode(String sourceService) {
+        return sourceService == null ? null : dictionary.sourceServices().code(sourceService);
+    }
+
+    private static String entryKey(String streamKey, String recordId) {
+        return streamKey + "|" + recordId;
+    }
+
+    /**
+     * A single multi-row upsert may not touch the same key twice, so rows are collapsed per key first.
+     */
+    private Map<String, OrderStateHistoryEntity> latestByKey(List<OrderStateHistoryEntity> rows) {
+        Map<String, OrderStateHistoryEntity> latest = new LinkedHashMap<>();
+        for (OrderStateHistoryEntity row : rows) {
+            if (row.getFileId() != null) {
+                latest.put(OrderCurrentStateEntity.fileKey(row.getFileId()), row);
+            }
+            if (row.getOrderId() != null) {
+                latest.put(OrderCurrentStateEntity.orderKey(row.getOrderId()), row);
+                if (row.getDistributorId() != null) {
+                    latest.put(OrderCurrentStateEntity.orderDistributorKey(row.getOrderId(), row.getDistributorId()), row);
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static void setCode(PreparedStatement ps, int index, Short code) throws SQLException {
+        if (code != null) {
+            ps.setShort(index, code);
+        } else {
+            ps.setNull(index, Types.SMALLINT);
+        }
+    }
+
+    private static void setDistributorId(PreparedStatement ps, int index, Integer distributorId) throws SQLException {
+        if (distributorId != null) {
+            ps.setInt(index, distributorId);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.example.status.dao;
+import com.example.status.dto.OrderHistoryEntry;
 import com.example.status.entity.OrderStateHistoryEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;  
 
 public interface OrderStateHistoryDao extends JpaRepository<OrderStateHistoryEntity, Long> {
 
+    String HISTORY_ENTRY = "SELECT new com.example.status.dto.OrderHistoryEntry(h.id, h.orderId, h.fileId, "
+            + "h.distributorId, h.previousState, h.currentState, h.sourceService, h.eventTime) "
+            + "FROM OrderStateHistoryEntity h ";
+
+    String AFTER_CURSOR = "AND (h.eventTime > :afterTime OR (h.eventTime = :afterTime AND h.id > :afterId)) ";
+
+    String KEYSET_ORDER = "ORDER BY h.eventTime, h.id";
+
     Optional<OrderStateHistoryEntity> findTopByFileIdAndOrderIdAndDistributorIdOrderByEventTimeDesc(
         String fileId,
         String orderId,
@@ -23,4 +39,31 @@ public interface OrderStateHistoryDao extends JpaRepository<OrderStateHistoryEnt
 
     boolean existsByFileId(String fileId);
 
-}   
\ No newline at end of file
+    // Keyset pages over (event_time, id), served by the idx_osh_*_event_time_id indexes; never OFFSET.
+    // Read-only so that each export page, which runs outside a service transaction, goes to the read pool.
+
+    @Transactional(readOnly = true)
+    @Query(HISTORY_ENTRY + "WHERE h.orderId = :orderId " + KEYSET_ORDER)
+    List<OrderHistoryEntry> findOrderHistory(@Param("orderId") String orderId, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(HISTORY_ENTRY + "WHERE h.orderId = :orderId " + AFTER_CURSOR + KEYSET_ORDER)
+    List<OrderHistoryEntry> findOrderHistoryAfter(@Param("orderId") String orderId,
+        @Param("afterTime") LocalDateTime afterTime,
+        @Param("afterId") long afterId,
+        Limit limit
+    );
+
+    @Transactional(readOnly = true)
+    @Query(HISTORY_ENTRY + "WHERE h.fileId = :fileId " + KEYSET_ORDER)
+    List<OrderHistoryEntry> findFileHistory(@Param("fileId") String fileId, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(HISTORY_ENTRY + "WHERE h.fileId = :fileId " + AFTER_CURSOR + KEYSET_ORDER)
+    List<OrderHistoryEntry> findFileHistoryAfter(@Param("fileId") String fileId,
+        @Param("afterTime") LocalDateTime afterTime,
+        @Param("afterId") long afterId,
+        Limit limit
+    );
+
+}
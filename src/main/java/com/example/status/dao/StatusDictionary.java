@@ -0,0 +1,82 @@
+package com.example.status.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The dictionaries behind the SMALLINT state and source-service columns ({@code status_state},
+ * {@code status_source_service}). The consumer interns incoming names through it, so every row in memory
+ * shares one String per name, and the JPA converters and the batch writer translate between names and codes.
+ * Nothing is read at startup; each table is loaded on first use.
+ */
+@Repository
+public class StatusDictionary {
+
+    private final CodeTable states;
+    private final CodeTable sourceServices;
+
+    @Autowired
+    public StatusDictionary(JdbcTemplate jdbcTemplate, @Lazy PlatformTransactionManager transactionManager,
+            @Value("${app.dictionary.max-entries:1000}") int maxEntries) {
+        // New names are committed on their own, before the batch that uses them: a code must never be cached
+        // for a row that a rolled-back batch inserted. The manager is lazy because the JPA converters, and with
+        // them the entity manager factory behind it, depend on this dictionary.
+        TransactionTemplate ownTransaction = new TransactionTemplate(transactionManager);
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.states = new CodeTable("state", new JdbcStore(jdbcTemplate, ownTransaction, "status_state"), maxEntries);
+        this.sourceServices = new CodeTable("source service",
+                new JdbcStore(jdbcTemplate, ownTransaction, "status_source_service"), maxEntries);
+    }
+
+    public StatusDictionary(CodeTable states, CodeTable sourceServices) {
+        this.states = states;
+        this.sourceServices = sourceServices;
+    }
+
+    /**
+     * Both vocabularies in memory only, for tests and benchmarks.
+     */
+    public static StatusDictionary inMemory() {
+        return new StatusDictionary(CodeTable.inMemory("state"), CodeTable.inMemory("source service"));
+    }
+
+    public CodeTable states() {
+        return states;
+    }
+
+    public CodeTable sourceServices() {
+        return sourceServices;
+    }
+
+    private record JdbcStore(JdbcTemplate jdbcTemplate, TransactionTemplate ownTransaction, String table)
+            implements CodeTable.Store {
+
+        @Override
+        public Map<String, Short> loadAll() {
+            Map<String, Short> rows = new HashMap<>();
+            jdbcTemplate.query("SELECT code, name FROM " + table,
+                    rs -> {
+                        rows.put(rs.getString(2), rs.getShort(1));
+                    });
+            return rows;
+        }
+
+        /**
+         * Safe against other instances adding the same name: the unique name wins and both read its code.
+         */
+        @Override
+        public void add(String name) {
+            ownTransaction.executeWithoutResult(status -> jdbcTemplate.update(
+                    "INSERT INTO " + table + " (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.status.dao;
+
+/**
+ * Thrown when a new name would take a {@link CodeTable} past its {@code maxEntries}. Retrying cannot help:
+ * the vocabulary only grows, so the same name is rejected until the limit is raised.
+ */
+public class VocabularyFullException extends IllegalStateException {
+
+    public VocabularyFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.status.dto;
+
+import java.time.Instant;
+
+/**
+ * Which dead letters to put back on the stream and how fast. Every filter is optional:
+ * {@code reason} matches case-insensitively anywhere in the recorded reason, {@code sourceService}
+ * must equal the event's sourceservice, and {@code from}/{@code to} bound the time the entry was
+ * dead-lettered. {@code limit} caps the records replayed; {@code ratePerSecond} defaults to
+ * {@code app.dlq-replay.rate-per-second}.
+ */
+public record DlqReplayRequest(
+        String reason,
+        String sourceService,
+        Instant from,
+        Instant to,
+        Long limit,
+        Integer ratePerSecond) {
+}
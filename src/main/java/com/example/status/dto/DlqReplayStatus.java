@@ -0,0 +1,19 @@
+package com.example.status.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of a DLQ replay; {@code lastEntryId} is the last DLQ entry examined. Replayed entries are
+ * deleted from the DLQ, so running the same request again continues where an interrupted one stopped.
+ */
+public record DlqReplayStatus(
+        String state,
+        DlqReplayRequest request,
+        long scanned,
+        long replayed,
+        long skipped,
+        String lastEntryId,
+        Instant startedAt,
+        Instant finishedAt,
+        String error) {
+}
@@ -0,0 +1,36 @@
+package com.example.status.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in order_state_history: the (event_time, id) of the last row a client has seen.
+ * Clients only ever see it as an opaque URL-safe token.
+ */
+public record HistoryCursor(LocalDateTime eventTime, long id) {
+
+    public static HistoryCursor after(OrderHistoryEntry entry) {
+        return new HistoryCursor(entry.eventTime(), entry.id());
+    }
+
+    public String encode() {
+        String raw = eventTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.status.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of order_state_history as returned by the history API, selected straight into this record
+ * so no entity is loaded or tracked.
+ */
+public record OrderHistoryEntry(
+        Long id,
+        String orderId,
+        String fileId,
+        Integer distributorId,
+        String previousState,
+        String currentState,
+        String sourceService,
+        LocalDateTime eventTime) {
+}
@@ -0,0 +1,9 @@
+package com.example.status.dto;
+
+import java.util.List;
+
+/**
+ * One page of history in (eventTime, id) order. {@code nextCursor} is null on the last page.
+ */
+public record OrderHistoryPage(List<OrderHistoryEntry> entries, String nextCursor) {
+}
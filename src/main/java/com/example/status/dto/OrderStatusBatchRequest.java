@@ -0,0 +1,6 @@
+package com.example.status.dto;
+
+import java.util.List;
+
+public record OrderStatusBatchRequest(List<String> orderIds) {
+}
@@ -0,0 +1,21 @@
+package com.example.status.dto;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Statuses found for a bulk lookup, in request order, plus the orderIds that have no status yet.
+ */
+public record OrderStatusBatchResponse(List<OrderStatusView> statuses, List<String> notFound) {
+
+    public String etag() {
+        StringBuilder versions = new StringBuilder(statuses.size() * 36);
+        for (OrderStatusView status : statuses) {
+            versions.append(status.etag());
+        }
+        versions.append(notFound);
+        return "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
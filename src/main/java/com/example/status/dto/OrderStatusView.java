@@ -0,0 +1,40 @@
+package com.example.status.dto;
+
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Latest status of one order as returned by the REST API, detached from the JPA entity.
+ */
+public record OrderStatusView(
+        String orderId,
+        String fileId,
+        Integer distributorId,
+        String previousState,
+        String currentState,
+        String sourceService,
+        LocalDateTime eventTime) {
+
+    public static OrderStatusView from(OrderCurrentStateEntity entity) {
+        return new OrderStatusView(entity.getOrderId(), entity.getFileId(), entity.getDistributorId(),
+                entity.getPreviousState(), entity.getCurrentState(), entity.getSourceService(),
+                entity.getEventTime());
+    }
+
+    public static OrderStatusView from(OrderStateHistoryEntity entity) {
+        return new OrderStatusView(entity.getOrderId(), entity.getFileId(), entity.getDistributorId(),
+                entity.getPreviousState(), entity.getCurrentState(), entity.getSourceService(),
+                entity.getEventTime());
+    }
+
+    /**
+     * Strong validator for this exact state; changes whenever any returned field changes.
+     */
+    public String etag() {
+        return "\"" + DigestUtils.md5DigestAsHex(toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
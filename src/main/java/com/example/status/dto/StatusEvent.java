@@ -0,0 +1,59 @@
+package com.example.status.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The fields of a status-stream payload the consumer actually uses. Every spelling the producers
+ * send is bound once through {@link JsonAlias}; values are trimmed and blank or "null" strings
+ * are treated as absent.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record StatusEvent(
+        String sourceService,
+        String status,
+        String fileId,
+        String orderId,
+        Integer distributorId) {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusEvent.class);
+
+    @JsonCreator
+    public static StatusEvent of(
+            @JsonProperty("sourceservice") @JsonAlias({"source_service", "sourceService"}) Object sourceService,
+            @JsonProperty("status") Object status,
+            @JsonProperty("fileId") @JsonAlias({"files_id", "file_id"}) Object fileId,
+            @JsonProperty("orderId") @JsonAlias("order_id") Object orderId,
+            @JsonProperty("distributorId") @JsonAlias({"distributor_id", "firmId", "firm_id"}) Object distributorId) {
+        return new StatusEvent(clean(sourceService), clean(status), clean(fileId), clean(orderId),
+                toInteger(clean(distributorId)));
+    }
+
+    public boolean isTradeCapture() {
+        return "trade-capture".equalsIgnoreCase(sourceService);
+    }
+
+    private static String clean(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String str = value.toString().trim();
+        return str.isEmpty() || "null".equalsIgnoreCase(str) ? null : str;
+    }
+
+    private static Integer toInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            log.warn("Failed to parse integer from value '{}'", value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.status.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest state per lookup key, maintained next to order_state_history in the same transaction.
+ * One row exists per fileId, per orderId and per (orderId, distributorId), so "latest state of X"
+ * is a primary-key read however long the history gets.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "order_current_state")
+public class OrderCurrentStateEntity {
+
+    @Id
+    @Column(name = "state_key")
+    private String stateKey;
+
+    @Column(name = "file_id")
+    private String fileId;
+
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "distributor_id")
+    private Integer distributorId;
+
+    @Convert(converter = StateCodeConverter.class)
+    @Column(name = "previous_state_code")
+    private String previousState;
+
+    @Convert(converter = StateCodeConverter.class)
+    @Column(name = "current_state_code", nullable = false)
+    private String currentState;
+
+    @Convert(converter = SourceServiceCodeConverter.class)
+    @Column(name = "source_service_code")
+    private String sourceService;
+
+    @Column(name = "event_time", nullable = false)
+    private LocalDateTime eventTime;
+
+    public static String fileKey(String fileId) {
+        return "file|" + fileId;
+    }
+
+    public static String orderKey(String orderId) {
+        return "order|" + orderId;
+    }
+
+    public static String orderDistributorKey(String orderId, Integer distributorId) {
+        return "order|" + orderId + "|" + distributorId;
+    }
+}
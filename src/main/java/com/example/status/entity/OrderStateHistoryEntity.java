@@ -11,13 +11,27 @@ import java.time.LocalDateTime;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "order_state_history")
+@Table(name = "order_state_history", indexes = {
+        @Index(name = "idx_osh_order_event_time_id", columnList = "order_id, event_time, id"),
+        @Index(name = "idx_osh_file_event_time_id", columnList = "file_id, event_time, id"),
+        @Index(name = "idx_osh_order_distributor_event_time", columnList = "order_id, distributor_id, event_time")
+})
 public class OrderStateHistoryEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Stream and entry id the row was written from; unique together with event_time, so a redelivered
+     * entry can never produce a second row.
+     */
+    @Column(name = "stream_key")
+    private String streamKey;
+
+    @Column(name = "stream_record_id")
+    private String streamRecordId;
+
     @Column(name = "file_id")
     private String fileId;
 
@@ -27,13 +41,19 @@ public class OrderStateHistoryEntity {
     @Column(name = "distributor_id")
     private Integer distributorId;
 
-    @Column(name = "previous_state")
+    /**
+     * States and source service are stored as SMALLINT dictionary codes; in memory they are the interned names.
+     */
+    @Convert(converter = StateCodeConverter.class)
+    @Column(name = "previous_state_code")
     private String previousState;
 
-    @Column(name = "current_state", nullable = false)
+    @Convert(converter = StateCodeConverter.class)
+    @Column(name = "current_state_code", nullable = false)
     private String currentState;
 
-    @Column(name = "source_service")
+    @Convert(converter = SourceServiceCodeConverter.class)
+    @Column(name = "source_service_code")
     private String sourceService;
 
     @Column(name = "event_time", nullable = false)
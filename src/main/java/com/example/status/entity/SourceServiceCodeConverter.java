@@ -0,0 +1,28 @@
+package com.example.status.entity;
+
+import com.example.status.dao.StatusDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps source-service names to their SMALLINT code in {@code status_source_service}.
+ */
+@Converter
+public class SourceServiceCodeConverter implements AttributeConverter<String, Short> {
+
+    private final StatusDictionary dictionary;
+
+    public SourceServiceCodeConverter(StatusDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String sourceService) {
+        return sourceService == null ? null : dictionary.sourceServices().code(sourceService);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : dictionary.sourceServices().name(code);
+    }
+}
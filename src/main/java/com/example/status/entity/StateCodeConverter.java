@@ -0,0 +1,29 @@
+package com.example.status.entity;
+
+import com.example.status.dao.StatusDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps state names to their SMALLINT code in {@code status_state}. Hibernate builds it through Spring,
+ * so the dictionary is injected.
+ */
+@Converter
+public class StateCodeConverter implements AttributeConverter<String, Short> {
+
+    private final StatusDictionary dictionary;
+
+    public StateCodeConverter(StatusDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String state) {
+        return state == null ? null : dictionary.states().code(state);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : dictionary.states().name(code);
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.status.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Who this instance is within the consumer group and which stream shards it reads.
+ * The consumer name defaults to hostname-pid, so replicas never share a PEL. Every instance
+ * heartbeats into a sorted set ({@code app.redis.consumer-registry}, score = last heartbeat), and the
+ * live members split the {@code app.redis.stream-shards} streams between them by their sorted position;
+ * members beyond the number of shards stand by without one, since two readers of a shard would process
+ * one order's records in parallel.
+ * A shard is only read while this instance holds its lease ({@code <registry>:owner:<stream>}, renewed by
+ * every heartbeat). A shard that is assigned elsewhere is first moved to {@link #releasingStreams()}: it is no
+ * longer read, but the lease is kept until the consumer reports it drained via {@link #release}, or for at
+ * most {@code app.consumer.handoff-timeout-ms}, so the new owner never starts while old work is in flight.
+ * Whatever was cached about a shard may be stale once it comes back from another owner, so listeners
+ * registered with {@link #onShardsGained} run before a newly owned shard is read.
+ * Group consumers that are no longer live and have nothing pending are deleted with XGROUP DELCONSUMER.
+ * With {@code app.consumer.enabled=false} the instance does not register at all.
+ */
+@Component
+public class ConsumerMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumerMembership.class);
+
+    // KEYS: lease. ARGV: owner, ttl ms. Renews the lease if it is ours, takes it if it is free.
+    private static final RedisScript<Long> HOLD_LEASE = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if owner == ARGV[1] then
+              redis.call('PEXPIRE', KEYS[1], ARGV[2])
+              return 1
+            end
+            if not owner then
+              redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String consumerName;
+    private final List<String> allStreams;
+
+    @Value("${app.redis.group}")
+    private String GROUP_NAME;
+
+    @Value("${app.redis.consumer-registry:status-consumers}")
+    private String REGISTRY_KEY;
+
+    @Value("${app.consumer.stale-consumer-ms:60000}")
+    private long STALE_CONSUMER_MS;
+
+    @Value("${app.consumer.handoff-timeout-ms:60000}")
+    private long HANDOFF_TIMEOUT_MS;
+
+    @Value("${app.consumer.enabled:true}")
+    private boolean ENABLED = true;
+
+    private volatile List<String> ownedStreams = List.of();
+
+    // Shard -> when this instance stopped reading it; the lease is held until release().
+    private final Map<String, Long> releasing = new ConcurrentHashMap<>();
+
+    private final List<Runnable> gainListeners = new CopyOnWriteArrayList<>();
+
+    public ConsumerMembership(StringRedisTemplate redisTemplate,
+            @Value("${app.redis.stream}") String streamKey,
+            @Value("${app.redis.stream-shards:1}") int shards,
+            @Value("${app.redis.consumer:}") String configuredName) {
+        this.redisTemplate = redisTemplate;
+        this.consumerName = configuredName == null || configuredName.isBlank() ? defaultName() : configuredName;
+        this.allStreams = shardKeys(streamKey, shards);
+    }
+
+    /**
+     * {@code status-stream} when unsharded, otherwise {@code status-stream:0} .. {@code status-stream:N-1}.
+     */
+    static List<String> shardKeys(String streamKey, int shards) {
+        if (shards <= 1) {
+            return List.of(streamKey);
+        }
+        List<String> keys = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            keys.add(streamKey + ":" + i);
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Member k of m live members reads every shard i with i % m == k. With more members than shards
+     * members N and up get nothing and stand by until a lower member leaves.
+     */
+    static List<String> assign(List<String> streams, Set<String> liveMembers, String self) {
+        List<String> members = new ArrayList<>(new TreeSet<>(liveMembers));
+        int index = members.indexOf(self);
+        if (index < 0 || members.size() == 1) {
+            return streams;
+        }
+        List<String> owned = new ArrayList<>();
+        for (int i = index; i < streams.size(); i += members.size()) {
+            owned.add(streams.get(i));
+        }
+        return Collections.unmodifiableList(owned);
+    }
+
+    private static String defaultName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = System.getenv().getOrDefault("HOSTNAME", "localhost");
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    public String consumerName() {
+        return consumerName;
+    }
+
+    public List<String> allStreams() {
+        return allStreams;
+    }
+
+    /**
+     * The shards to read: assigned to this instance and leased by it. Empty while standing by.
+     */
+    public List<String> ownedStreams() {
+        return ownedStreams;
+    }
+
+    /**
+     * Shards no longer read here whose lease is still held until the work already taken from them is done.
+     */
+    public Set<String> releasingStreams() {
+        return Set.copyOf(releasing.keySet());
+    }
+
+    /**
+     * Gives up the lease of a releasing shard, letting its new owner start on the next heartbeat.
+     */
+    public void release(String stream) {
+        if (releasing.remove(stream) == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_LEASE, List.of(leaseKey(stream)), consumerName);
+            log.info("Consumer {} handed over {}", consumerName, stream);
+        } catch (Exception e) {
+            log.warn("Failed to release {}, it frees up when the lease expires: {}", stream, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code listener} on the heartbeat thread whenever this instance takes over a shard it was not
+     * reading, before the shard shows up in {@link #ownedStreams()}.
+     */
+    public void onShardsGained(Runnable listener) {
+        gainListeners.add(listener);
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!ENABLED) {
+            return;
+        }
+        heartbeat();
+        log.info("Consumer {} reading {}", consumerName, ownedStreams);
+    }
+
+    @Scheduled(initialDelayString = "${app.consumer.heartbeat-interval-ms:10000}",
+            fixedDelayString = "${app.consumer.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(REGISTRY_KEY, consumerName, now);
+            redisTemplate.opsForZSet().removeRangeByScore(REGISTRY_KEY, 0, now - STALE_CONSUMER_MS);
+            Set<String> live = redisTemplate.opsForZSet().rangeByScore(REGISTRY_KEY, now - STALE_CONSUMER_MS, Double.MAX_VALUE);
+            if (live == null || live.isEmpty()) {
+                return;
+            }
+            List<String> assigned = assign(allStreams, live, consumerName);
+            for (String stream : ownedStreams) {
+                if (!assigned.contains(stream)) {
+                    releasing.putIfAbsent(stream, now);
+                }
+            }
+            List<String> owned = new ArrayList<>(assigned.size());
+            for (String stream : assigned) {
+                releasing.remove(stream);
+                if (holdLease(stream)) {
+                    owned.add(stream);
+                }
+            }
+            renewReleasing(now);
+            if (!ownedStreams.containsAll(owned)) {
+                gainListeners.forEach(Runnable::run);
+            }
+            if (!owned.equals(ownedStreams)) {
+                log.info("Consumer {} now reading {} ({} live)", consumerName, owned.isEmpty() ? "nothing" : owned,
+                        live.size());
+                ownedStreams = Collections.unmodifiableList(owned);
+            }
+            removeDeadConsumers(live);
+        } catch (Exception e) {
+            log.warn("Consumer heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void renewReleasing(long now) {
+        for (Map.Entry<String, Long> entry : releasing.entrySet()) {
+            String stream = entry.getKey();
+            if (now - entry.getValue() > HANDOFF_TIMEOUT_MS) {
+                log.warn("{} not drained after {} ms, handing it over anyway", stream, HANDOFF_TIMEOUT_MS);
+                release(stream);
+            } else if (!holdLease(stream)) {
+                releasing.remove(stream);
+            }
+        }
+    }
+
+    private boolean holdLease(String stream) {
+        Long held = redisTemplate.execute(HOLD_LEASE, List.of(leaseKey(stream)), consumerName,
+                Long.toString(STALE_CONSUMER_MS));
+        return held != null && held == 1L;
+    }
+
+    private String leaseKey(String stream) {
+        return REGISTRY_KEY + ":owner:" + stream;
+    }
+
+    /**
+     * Only consumers with an empty PEL are removed; anything still pending is first taken over by
+     * the reclaimer of whichever instance now owns the shard.
+     */
+    private void removeDeadConsumers(Set<String> live) {
+        for (String stream : allStreams) {
+            try {
+                StreamInfo.XInfoConsumers consumers = redisTemplate.opsForStream().consumers(stream, GROUP_NAME);
+                if (consumers == null) {
+                    continue;
+                }
+                consumers.forEach(consumer -> {
+                    if (!live.contains(consumer.consumerName()) && consumer.pendingCount() == 0
+                            && consumer.idleTimeMs() > STALE_CONSUMER_MS) {
+                        redisTemplate.opsForStream().deleteConsumer(stream, Consumer.from(GROUP_NAME, consumer.consumerName()));
+                        log.info("Removed idle consumer {} from {}", consumer.consumerName(), stream);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Failed to check consumers of {}: {}", stream, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void deregister() {
+        if (!ENABLED) {
+            return;
+        }
+        for (String stream : ownedStreams) {
+            releasing.putIfAbsent(stream, 0L);
+        }
+        ownedStreams = List.of();
+        for (String stream : releasingStreams()) {
+            release(stream);
+        }
+        try {
+            redisTemplate.opsForZSet().remove(REGISTRY_KEY, consumerName);
+        } catch (Exception e) {
+            log.warn("Failed to deregister consumer {}: {}", consumerName, e.getMessage());
+        }
+    }
+}
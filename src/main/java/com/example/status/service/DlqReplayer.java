@@ -0,0 +1,386 @@
+package com.example.status.service;
+
+import com.example.status.dto.DlqReplayRequest;
+import com.example.status.dto.DlqReplayStatus;
+import com.example.status.dto.StatusEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts dead letters back on the stream they came from. The DLQ is walked oldest first with
+ * XRANGE pages of {@code app.dlq-replay.page-size}; the time filter becomes the XRANGE bounds and the
+ * other filters are applied per entry. Matching entries are re-added with their original fields and
+ * deleted from the DLQ in one MULTI/EXEC per batch, so an entry is never lost nor replayed twice,
+ * and batches are paced to {@code ratePerSecond} so a large backlog does not flood Postgres.
+ * Only one replay runs at a time across all processes, endpoint and CLI alike: a run holds a Redis lock
+ * ({@code <dlq-stream>:replay-lock}) that it renews while it works, and a second one is refused. A crashed
+ * run's lock expires after {@link #LOCK_TTL_MS}. A replayed entry carries the id it originally had in
+ * {@link #REPLAYED_FROM}; the consumer writes it under that id, so its event_time is the original one and a
+ * record that already has a history row is skipped like any redelivery.
+ */
+@Component
+@Lazy
+public class DlqReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayer.class);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    static final String REPLAYED_FROM = "replayed_from";
+
+    static final long LOCK_TTL_MS = 60_000;
+
+    // KEYS: lock. ARGV: owner, ttl ms. Renews the lock if it is ours, takes it if it is free.
+    private static final RedisScript<Long> HOLD_LOCK = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if owner == ARGV[1] then
+              redis.call('PEXPIRE', KEYS[1], ARGV[2])
+              return 1
+            end
+            if not owner then
+              redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StatusEventParser eventParser;
+    private final ConsumerMembership membership;
+    private final ExecutorService worker;
+    private final Counter replayed;
+    private final Counter skipped;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Job current;
+
+    @Value("${app.redis.dlq-stream}")
+    private String DLQ_STREAM;
+
+    @Value("${app.dlq-replay.page-size:1000}")
+    private int PAGE_SIZE;
+
+    @Value("${app.dlq-replay.batch-size:200}")
+    private int BATCH_SIZE;
+
+    @Value("${app.dlq-replay.rate-per-second:2000}")
+    private int DEFAULT_RATE;
+
+    public DlqReplayer(StringRedisTemplate redisTemplate, StatusEventParser eventParser,
+            ConsumerMembership membership, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.eventParser = eventParser;
+        this.membership = membership;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "status-dlq-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.replayed = Counter.builder("status.dlq.replay").tag("outcome", "replayed").register(meterRegistry);
+        this.skipped = Counter.builder("status.dlq.replay").tag("outcome", "skipped").register(meterRegistry);
+    }
+
+    /**
+     * Starts a replay in the background. Returns null when one is already running, here or in another process.
+     */
+    public DlqReplayStatus start(DlqReplayRequest request) {
+        Job job = claim(request);
+        if (job == null) {
+            return null;
+        }
+        current = job;
+        worker.execute(() -> run(job));
+        return job.status();
+    }
+
+    /**
+     * Runs a replay on the calling thread and returns its final status; used by the CLI mode. The status is
+     * REJECTED when another replay is running.
+     */
+    public DlqReplayStatus replay(DlqReplayRequest request) {
+        Job job = claim(request);
+        if (job == null) {
+            Job rejected = new Job(request);
+            rejected.state = "REJECTED";
+            rejected.error = "Another DLQ replay is running";
+            rejected.finishedAt = Instant.now();
+            return rejected.status();
+        }
+        current = job;
+        run(job);
+        return job.status();
+    }
+
+    /**
+     * A new job holding both the local flag and the Redis lock, or null when either is taken.
+     */
+    private Job claim(DlqReplayRequest request) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        Job job = new Job(request);
+        try {
+            if (holdLock(job)) {
+                return job;
+            }
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        running.set(false);
+        return null;
+    }
+
+    private boolean holdLock(Job job) {
+        Long held = redisTemplate.execute(HOLD_LOCK, List.of(lockKey()), job.owner, Long.toString(LOCK_TTL_MS));
+        return held != null && held == 1L;
+    }
+
+    private void renewLock(Job job) {
+        if (!holdLock(job)) {
+            throw new IllegalStateException("Lost the DLQ replay lock to another process");
+        }
+    }
+
+    private void releaseLock(Job job) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK, List.of(lockKey()), job.owner);
+        } catch (Exception e) {
+            log.warn("Failed to release the DLQ replay lock, it expires in {} ms: {}", LOCK_TTL_MS, e.getMessage());
+        }
+    }
+
+    private String lockKey() {
+        return DLQ_STREAM + ":replay-lock";
+    }
+
+    public DlqReplayStatus status() {
+        Job job = current;
+        return job == null ? null : job.status();
+    }
+
+    /**
+     * Stops the running replay after its current batch. Returns false when nothing is running.
+     */
+    public boolean cancel() {
+        Job job = current;
+        if (job == null || !job.isActive()) {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    private void run(Job job) {
+        job.state = "RUNNING";
+        log.info("DLQ replay started: {}", job.request);
+        try {
+            scan(job);
+            job.state = job.cancelled ? "CANCELLED" : "COMPLETED";
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.state = "FAILED";
+            log.error("DLQ replay failed after {} records", job.replayed.get(), e);
+        } finally {
+            releaseLock(job);
+            job.finishedAt = Instant.now();
+            running.set(false);
+        }
+        log.info("DLQ replay {}: scanned={} replayed={} skipped={}", job.state.toLowerCase(Locale.ROOT),
+                job.scanned.get(), job.replayed.get(), job.skipped.get());
+    }
+
+    private void scan(Job job) {
+        DlqReplayRequest request = job.request;
+        int rate = request.ratePerSecond() != null && request.ratePerSecond() > 0 ? request.ratePerSecond() : DEFAULT_RATE;
+        long limit = request.limit() != null && request.limit() > 0 ? request.limit() : Long.MAX_VALUE;
+        // A bare millisecond id covers the whole millisecond: seq 0 as the start, the highest seq as the end.
+        Range.Bound<String> upper = request.to() != null
+                ? Range.Bound.inclusive(String.valueOf(request.to().toEpochMilli()))
+                : Range.Bound.unbounded();
+        Range.Bound<String> lower = request.from() != null
+                ? Range.Bound.inclusive(String.valueOf(request.from().toEpochMilli()))
+                : Range.Bound.unbounded();
+        long paceStart = System.nanoTime();
+        long paced = 0;
+
+        while (!job.cancelled && job.replayed.get() < limit) {
+            renewLock(job);
+            List<MapRecord<String, Object, Object>> page = redisTemplate.opsForStream()
+                    .range(DLQ_STREAM, Range.of(lower, upper), Limit.limit().count(PAGE_SIZE));
+            if (page == null || page.isEmpty()) {
+                return;
+            }
+            List<MapRecord<String, Object, Object>> batch = new ArrayList<>(BATCH_SIZE);
+            for (MapRecord<String, Object, Object> entry : page) {
+                job.scanned.incrementAndGet();
+                job.lastEntryId = entry.getId().getValue();
+                if (!matches(entry, request)) {
+                    job.skipped.incrementAndGet();
+                    skipped.increment();
+                    continue;
+                }
+                batch.add(entry);
+                if (batch.size() == BATCH_SIZE || job.replayed.get() + batch.size() >= limit) {
+                    paced += flush(batch, job, paceStart, paced, rate);
+                    if (job.cancelled || job.replayed.get() >= limit) {
+                        return;
+                    }
+                }
+            }
+            paced += flush(batch, job, paceStart, paced, rate);
+            lower = Range.Bound.exclusive(page.get(page.size() - 1).getId().getValue());
+        }
+    }
+
+    /**
+     * Waits until the rate allows {@code batch.size()} more records, then re-adds and deletes them atomically.
+     */
+    private int flush(List<MapRecord<String, Object, Object>> batch, Job job, long paceStart, long paced, int rate) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long due = paceStart + (paced + batch.size()) * NANOS_PER_SECOND / rate;
+        long wait;
+        // A slow rate can wait longer than the lock lives, so the wait is cut into slices that renew it.
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(wait, TimeUnit.MILLISECONDS.toNanos(LOCK_TTL_MS / 3)));
+            renewLock(job);
+        }
+        List<MapRecord<String, String, String>> replays = new ArrayList<>(batch.size());
+        RecordId[] dlqIds = new RecordId[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            MapRecord<String, Object, Object> entry = batch.get(i);
+            dlqIds[i] = entry.getId();
+            replays.add(toReplay(entry));
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                for (MapRecord<String, String, String> replay : replays) {
+                    ops.opsForStream().add(replay);
+                }
+                ops.opsForStream().delete(DLQ_STREAM, dlqIds);
+                ops.exec();
+                return null;
+            }
+        });
+        int count = batch.size();
+        job.replayed.addAndGet(count);
+        replayed.increment(count);
+        batch.clear();
+        return count;
+    }
+
+    /**
+     * The original entry fields, plus the id it was first read under; an entry that failed again after an
+     * earlier replay keeps the id from that replay's fields. Entries written before source_stream was
+     * recorded go to the first stream.
+     */
+    private MapRecord<String, String, String> toReplay(MapRecord<String, Object, Object> entry) {
+        Map<Object, Object> dlq = entry.getValue();
+        Map<String, String> fields = eventParser.toFields(String.valueOf(dlq.get("stream_payload")));
+        if (fields == null) {
+            fields = new HashMap<>();
+            fields.put("payload", String.valueOf(dlq.get("stream_payload")));
+        }
+        Object failedId = dlq.get("failed_record_id");
+        if (failedId != null) {
+            fields.putIfAbsent(REPLAYED_FROM, failedId.toString());
+        }
+        Object source = dlq.get("source_stream");
+        String target = source != null ? source.toString() : membership.allStreams().get(0);
+        return StreamRecords.newRecord().in(target).ofMap(fields);
+    }
+
+    boolean matches(MapRecord<String, Object, Object> entry, DlqReplayRequest request) {
+        Map<Object, Object> dlq = entry.getValue();
+        if (request.reason() != null) {
+            Object reason = dlq.get("reason");
+            if (reason == null || !reason.toString().toLowerCase(Locale.ROOT)
+                    .contains(request.reason().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        if (request.sourceService() != null) {
+            Map<String, String> fields = eventParser.toFields(String.valueOf(dlq.get("stream_payload")));
+            StatusEvent event = fields == null ? null : eventParser.parse(fields.get("payload"));
+            return event != null && request.sourceService().equals(event.sourceService());
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private static final class Job {
+
+        private final DlqReplayRequest request;
+        private final String owner = UUID.randomUUID().toString();
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile String state = "PENDING";
+        private volatile String lastEntryId;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile boolean cancelled;
+
+        private Job(DlqReplayRequest request) {
+            this.request = request;
+        }
+
+        private boolean isActive() {
+            return finishedAt == null;
+        }
+
+        private DlqReplayStatus status() {
+            return new DlqReplayStatus(state, request, scanned.get(), replayed.get(), skipped.get(),
+                    lastEntryId, startedAt, finishedAt, error);
+        }
+    }
+}
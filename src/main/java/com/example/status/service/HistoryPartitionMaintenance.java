@@ -0,0 +1,328 @@
+package com.example.status.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the monthly partitions of order_state_history in shape. Partitions are created
+ * {@code app.history.partition-months-ahead} months in advance, so inserts never land in the default
+ * partition; rows that did land there are moved into their month's partition when it is created. Partitions older than {@code app.history.retention-months} are detached, written to
+ * {@code app.history.archive-dir} as gzipped CSV and dropped. A partition left detached by a failed run
+ * is picked up again by the next one. Every run holds a session-level advisory lock, so instances sharing
+ * the database never detach or drop the same partition concurrently; one that finds it taken skips the run.
+ * The run at startup happens in the background so it never delays
+ * readiness; consumer-only instances turn the whole job off with {@code app.history.maintenance-enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.history.maintenance-enabled", havingValue = "true", matchIfMissing = true)
+public class HistoryPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryPartitionMaintenance.class);
+
+    static final String TABLE = "order_state_history";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Physical column order, so an archive loads back with a plain COPY. The *_code columns refer to
+    // status_state / status_source_service, which are append-only, so archives stay decodable.
+    private static final String COLUMNS = "id, file_id, order_id, distributor_id, event_time, stream_key, "
+            + "stream_record_id, previous_state_code, current_state_code, source_service_code";
+
+    private static final String PARTITION_TABLES_SQL = "SELECT tablename FROM pg_tables "
+            + "WHERE schemaname = current_schema() AND tablename LIKE '" + TABLE + "\\_p%'";
+
+    private static final String IN_CURRENT_SCHEMA =
+            "p.relnamespace = (SELECT oid FROM pg_namespace WHERE nspname = current_schema())";
+
+    // Partitions of the table in our schema, with whether a DETACH ... CONCURRENTLY was interrupted.
+    private static final String ATTACHED_SQL = "SELECT c.relname, i.inhdetachpending FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = '" + TABLE + "' AND " + IN_CURRENT_SCHEMA;
+
+    private static final String HAS_DEFAULT_SQL = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table t "
+            + "JOIN pg_class p ON p.oid = t.partrelid "
+            + "WHERE p.relname = '" + TABLE + "' AND " + IN_CURRENT_SCHEMA + " AND t.partdefid <> 0)";
+
+    static final String DEFAULT_PARTITION = TABLE + "_default";
+
+    private static final String DEFAULT_HOLDS_SQL = "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+            + " WHERE event_time >= ? AND event_time < ?)";
+
+    // A plain DETACH waits for an ACCESS EXCLUSIVE lock on the whole table and queues every writer behind it.
+    private static final String DETACH_LOCK_TIMEOUT = "5s";
+
+    private static final int ARCHIVE_FETCH_SIZE = 5000;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('" + TABLE + "_maintenance'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('" + TABLE + "_maintenance'))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate archiveTemplate;
+    private final TransactionTemplate transaction;
+
+    @Value("${app.history.partition-months-ahead:3}")
+    private int MONTHS_AHEAD;
+
+    @Value("${app.history.retention-months:12}")
+    private int RETENTION_MONTHS;
+
+    @Value("${app.history.archive-dir:archive}")
+    private String ARCHIVE_DIR;
+
+    public HistoryPartitionMaintenance(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // PostgreSQL only uses a cursor with a fetch size inside a transaction; without both it loads the whole partition.
+        this.archiveTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.archiveTemplate.setFetchSize(ARCHIVE_FETCH_SIZE);
+        // Also used for the partition DDL. Deliberately not read-only for the archive cursor either: that would
+        // route to the read pool, and a replica may not have caught up with the DETACH yet.
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(SUFFIX);
+    }
+
+    /**
+     * The month a partition table holds, or null for tables that are not monthly partitions.
+     */
+    static YearMonth monthOf(String tableName) {
+        Matcher matcher = PARTITION_NAME.matcher(tableName);
+        return matcher.matches() ? YearMonth.parse(matcher.group(1), SUFFIX) : null;
+    }
+
+    /**
+     * Monthly partitions whose whole range is older than the retention window, oldest first.
+     * With a retention of 12 months, January 2024 expires once February 2025 begins.
+     */
+    static List<String> expired(Collection<String> tableNames, LocalDate today, int retentionMonths) {
+        YearMonth oldestKept = YearMonth.from(today).minusMonths(retentionMonths);
+        return tableNames.stream()
+                .filter(name -> {
+                    YearMonth month = monthOf(name);
+                    return month != null && month.isBefore(oldestKept);
+                })
+                .sorted()
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Thread thread = new Thread(this::maintain, "status-history-maintenance");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(cron = "${app.history.maintenance-cron:0 30 3 * * *}")
+    public synchronized void maintain() {
+        try {
+            // The lock belongs to the session, so it is taken and released on the one connection held for the run.
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!advisoryLock(connection, LOCK_SQL)) {
+                    log.info("History partition maintenance is running elsewhere, skipping");
+                    return null;
+                }
+                try {
+                    createUpcoming(LocalDate.now());
+                    archiveExpired(LocalDate.now());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    advisoryLock(connection, UNLOCK_SQL);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("History partition maintenance failed", e);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Creates the partitions of this month and the next {@code app.history.partition-months-ahead}. A month
+     * whose rows already landed in the default partition cannot simply be created (PostgreSQL rejects the new
+     * partition while the default holds rows for its range), so those rows are moved over first. A month
+     * that still fails is logged and retried on the next run; it does not stop the other months or the archiving.
+     */
+    void createUpcoming(LocalDate today) {
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(PARTITION_TABLES_SQL, String.class));
+        YearMonth month = YearMonth.from(today);
+        for (int i = 0; i <= MONTHS_AHEAD; i++) {
+            YearMonth target = month.plusMonths(i);
+            String partition = partitionName(target);
+            if (existing.contains(partition)) {
+                continue;
+            }
+            try {
+                Boolean stranded = jdbcTemplate.queryForObject(DEFAULT_HOLDS_SQL, Boolean.class,
+                        target.atDay(1).atStartOfDay(), target.plusMonths(1).atDay(1).atStartOfDay());
+                if (Boolean.TRUE.equals(stranded)) {
+                    moveOutOfDefault(target);
+                } else {
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE
+                            + " FOR VALUES FROM (" + bounds(target) + ")");
+                }
+            } catch (DataAccessException e) {
+                log.error("Could not create partition {}, retrying on the next run", partition, e);
+            }
+        }
+    }
+
+    /**
+     * Builds the month's partition as a plain table from the rows in the default partition and attaches it,
+     * all in one transaction so writers never see the rows twice or not at all.
+     */
+    private void moveOutOfDefault(YearMonth month) {
+        String partition = partitionName(month);
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + TABLE
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE event_time >= ? AND event_time < ? RETURNING *) INSERT INTO " + partition
+                    + " SELECT * FROM moved",
+                    month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM (" + bounds(month) + ")");
+            log.warn("Moved {} rows out of {} into the new partition {}", moved, DEFAULT_PARTITION, partition);
+        });
+    }
+
+    private static String bounds(YearMonth month) {
+        return "'" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "'";
+    }
+
+    void archiveExpired(LocalDate today) throws IOException {
+        List<String> expired = expired(jdbcTemplate.queryForList(PARTITION_TABLES_SQL, String.class), today, RETENTION_MONTHS);
+        if (expired.isEmpty()) {
+            return;
+        }
+        Map<String, Boolean> attached = new HashMap<>();
+        jdbcTemplate.query(ATTACHED_SQL, (ResultSet rs) -> {
+            attached.put(rs.getString(1), rs.getBoolean(2));
+        });
+        boolean concurrently = !Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_SQL, Boolean.class));
+        Path dir = Paths.get(ARCHIVE_DIR);
+        Files.createDirectories(dir);
+        for (String partition : expired) {
+            if (attached.containsKey(partition)) {
+                detach(partition, attached.get(partition), concurrently);
+            }
+            long rows = archive(partition, dir.resolve(partition + ".csv.gz"));
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Archived {} rows of {} to {}", rows, partition, dir.resolve(partition + ".csv.gz"));
+        }
+    }
+
+    /**
+     * DETACH ... CONCURRENTLY only takes a SHARE UPDATE EXCLUSIVE lock, so inserts and reads carry on, but
+     * PostgreSQL refuses it while the table has a default partition. Then the plain DETACH runs with a short
+     * lock_timeout instead, so a long-running query makes the run fail and retry the next day rather than
+     * stall every writer queued behind the lock. A concurrent detach that was interrupted is finalized.
+     * CONCURRENTLY cannot run inside a transaction; jdbcTemplate is in autocommit here.
+     */
+    void detach(String partition, boolean pending, boolean concurrently) {
+        if (pending) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition + " FINALIZE");
+        } else if (concurrently) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition + " CONCURRENTLY");
+        } else {
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '" + DETACH_LOCK_TIMEOUT + "'");
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            });
+        }
+    }
+
+    /**
+     * Streams the detached table through a server-side cursor into a temporary file that is only renamed
+     * into place once complete, so a crash never leaves a truncated archive behind.
+     */
+    private long archive(String partition, Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long[] rows = {0};
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(partial)), StandardCharsets.UTF_8))) {
+            out.write(COLUMNS.replace(" ", ""));
+            out.write('\n');
+            transaction.executeWithoutResult(status ->
+                    archiveTemplate.query("SELECT " + COLUMNS + " FROM " + partition + " ORDER BY event_time, id",
+                            (ResultSet rs) -> {
+                                writeCsvRow(out, rs);
+                                rows[0]++;
+                            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        return rows[0];
+    }
+
+    private static void writeCsvRow(Writer out, ResultSet rs) throws SQLException {
+        try {
+            int columns = rs.getMetaData().getColumnCount();
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    out.write(',');
+                }
+                out.write(csv(rs.getString(i)));
+            }
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.status.service;
+
+/**
+ * Thrown for a payload that can never be written as sent, e.g. a child event without the identifiers
+ * its source service must provide. Such records go to the DLQ at once instead of through the retries.
+ */
+public class InvalidEventException extends IllegalStateException {
+
+    public InvalidEventException(String message) {
+        super(message);
+    }
+}
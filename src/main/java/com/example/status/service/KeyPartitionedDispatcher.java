@@ -0,0 +1,139 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on a fixed set of single-threaded lanes chosen by hashing a partition key.
+ * Tasks with the same key always land on the same lane and run in submission order,
+ * tasks with different keys run in parallel. Each lane has a bounded queue; when it is
+ * full the submitting thread blocks until the lane catches up.
+ */
+public class KeyPartitionedDispatcher {
+
+    private final List<ThreadPoolExecutor> lanes;
+    private final AtomicLong[] dispatched;
+
+    public KeyPartitionedDispatcher(int laneCount, int queueCapacity, MeterRegistry meterRegistry) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be at least 1");
+        }
+        this.lanes = new ArrayList<>(laneCount);
+        this.dispatched = new AtomicLong[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            final String laneName = "status-lane-" + i;
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, laneName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    KeyPartitionedDispatcher::blockUntilQueued);
+            lanes.add(lane);
+            dispatched[i] = new AtomicLong();
+        }
+
+        if (meterRegistry != null) {
+            for (int i = 0; i < laneCount; i++) {
+                final BlockingQueue<Runnable> queue = lanes.get(i).getQueue();
+                Gauge.builder("status.consumer.lane.queue.depth", queue, BlockingQueue::size)
+                        .description("Records waiting in a consumer lane")
+                        .tag("lane", String.valueOf(i))
+                        .register(meterRegistry);
+            }
+            Gauge.builder("status.consumer.lane.skew", this, KeyPartitionedDispatcher::skew)
+                    .description("Records dispatched to the busiest lane divided by the per-lane average")
+                    .register(meterRegistry);
+        }
+    }
+
+    public Future<?> submit(String key, Runnable task) {
+        return submitToLane(laneFor(key), 1, task);
+    }
+
+    /**
+     * Submits a task that covers several records already grouped by {@link #laneFor(String)}.
+     * The record count only feeds the skew metric.
+     */
+    public Future<?> submitToLane(int lane, int records, Runnable task) {
+        dispatched[lane].addAndGet(records);
+        return lanes.get(lane).submit(task);
+    }
+
+    public int laneFor(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), lanes.size());
+    }
+
+    public int laneCount() {
+        return lanes.size();
+    }
+
+    public int queueDepth(int lane) {
+        return lanes.get(lane).getQueue().size();
+    }
+
+    /**
+     * 1.0 means keys are spread evenly; a value of N means the hottest lane received N times its share.
+     */
+    public double skew() {
+        long total = 0;
+        long max = 0;
+        for (AtomicLong counter : dispatched) {
+            long value = counter.get();
+            total += value;
+            max = Math.max(max, value);
+        }
+        if (total == 0) {
+            return 1.0;
+        }
+        double mean = (double) total / dispatched.length;
+        return max / mean;
+    }
+
+    /**
+     * Stops accepting tasks and waits for every lane to drain what is already queued.
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = true;
+        for (ThreadPoolExecutor lane : lanes) {
+            long remaining = deadline - System.nanoTime();
+            if (!lane.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                drained = false;
+            }
+        }
+        if (!drained) {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdownNow();
+            }
+        }
+        return drained;
+    }
+
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Lane is shut down");
+        }
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for lane capacity", e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.status.service;
+
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+import static com.example.status.entity.OrderCurrentStateEntity.fileKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderDistributorKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderKey;
+
+/**
+ * Bounded LRU cache of the latest current_state per fileId, (orderId, distributorId) and orderId.
+ * A miss is a primary-key read on order_current_state; committed rows are written through so the next
+ * event of the same order normally needs no SELECT at all. A key being present doubles as the
+ * "already seen from trade-capture" flag. Absence is not cached, so a parent written by another
+ * instance is still found on the next lookup. Entries live in a {@link StripedLruCache}, so lanes only
+ * contend when their keys share a segment. The cache is emptied whenever this instance takes over a shard:
+ * while another instance owned it, the states cached here for its keys may have moved on.
+ */
+@Component
+public class LatestStateCache {
+
+    private final OrderCurrentStateDao currentStateDao;
+    private final StripedLruCache<CachedState> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public LatestStateCache(OrderCurrentStateDao currentStateDao,
+            @Value("${app.cache.latest-state.max-entries:100000}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        this.currentStateDao = currentStateDao;
+        this.entries = new StripedLruCache<>(maxEntries);
+        this.hits = Counter.builder("status.cache.latest_state")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("status.cache.latest_state")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("status.cache.latest_state.size", this, LatestStateCache::size)
+                .register(meterRegistry);
+    }
+
+    @Autowired(required = false)
+    void watchShards(ConsumerMembership membership) {
+        membership.onShardsGained(this::clear);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public String latestForFile(String fileId) {
+        return lookup(fileKey(fileId));
+    }
+
+    public String latestForOrderAndDistributor(String orderId, Integer distributorId) {
+        return lookup(orderDistributorKey(orderId, distributorId));
+    }
+
+    public String latestForOrder(String orderId) {
+        return lookup(orderKey(orderId));
+    }
+
+    public boolean fileExists(String fileId) {
+        return latestForFile(fileId) != null;
+    }
+
+    public boolean orderExists(String orderId) {
+        return latestForOrder(orderId) != null;
+    }
+
+    /**
+     * Write-through for rows that have been committed. Rows must be passed in event order;
+     * an entry is never replaced by an older event, so lanes committing rows of the same order
+     * (one with a fileId, one without) cannot move it backwards.
+     */
+    public void recordCommitted(Collection<OrderStateHistoryEntity> rows) {
+        for (OrderStateHistoryEntity row : rows) {
+            if (row.getFileId() != null) {
+                put(fileKey(row.getFileId()), row.getCurrentState(), row.getEventTime());
+            }
+            if (row.getOrderId() != null) {
+                put(orderKey(row.getOrderId()), row.getCurrentState(), row.getEventTime());
+                if (row.getDistributorId() != null) {
+                    put(orderDistributorKey(row.getOrderId(), row.getDistributorId()),
+                            row.getCurrentState(), row.getEventTime());
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private String lookup(String key) {
+        CachedState cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.state();
+        }
+
+        misses.increment();
+        Optional<OrderCurrentStateEntity> row = currentStateDao.findByStateKey(key);
+        if (row.isEmpty()) {
+            return null;
+        }
+        put(key, row.get().getCurrentState(), row.get().getEventTime());
+        return row.get().getCurrentState();
+    }
+
+    private void put(String key, String state, LocalDateTime eventTime) {
+        entries.put(key, new CachedState(state, eventTime), (existing, update) -> update.eventTime() != null
+                && existing.eventTime() != null && update.eventTime().isBefore(existing.eventTime()));
+    }
+
+    private record CachedState(String state, LocalDateTime eventTime) {
+    }
+}
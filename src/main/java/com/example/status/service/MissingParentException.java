@@ -0,0 +1,45 @@
+package com.example.status.service;
+
+import static com.example.status.entity.OrderCurrentStateEntity.fileKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderKey;
+
+/**
+ * Thrown when a child event refers to a fileId or orderId that trade-capture has not created yet.
+ * Unlike other validation failures this one is expected to resolve itself once the parent arrives.
+ */
+public class MissingParentException extends IllegalStateException {
+
+    private final String fileId;
+    private final String orderId;
+
+    private MissingParentException(String message, String fileId, String orderId) {
+        super(message);
+        this.fileId = fileId;
+        this.orderId = orderId;
+    }
+
+    public static MissingParentException missingFile(String fileId, String orderId, String recordId) {
+        return new MissingParentException("fileId " + fileId + " not found yet for order: " + orderId
+                + " (" + recordId + ")", fileId, null);
+    }
+
+    public static MissingParentException missingOrder(String orderId, String recordId) {
+        return new MissingParentException("orderId " + orderId + " not seen yet from trade-capture ("
+                + recordId + ")", null, orderId);
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * The order_current_state key the parent will be stored under, e.g. {@code file|FILE001}.
+     */
+    public String parentKey() {
+        return fileId != null ? fileKey(fileId) : orderKey(orderId);
+    }
+}
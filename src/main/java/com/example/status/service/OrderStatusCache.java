@@ -0,0 +1,90 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Read-through LRU cache of {@link OrderStatusView}s for the REST API. The consumer writes committed
+ * rows through, so on the instance that processed an event the API sees it immediately; entries
+ * expire after {@code app.api.status-cache.ttl-ms} so instances that only serve reads catch up with
+ * writes made elsewhere. Absence is not cached. Entries live in a {@link StripedLruCache}, so API threads
+ * and lanes only contend when their keys share a segment.
+ */
+@Component
+public class OrderStatusCache {
+
+    private final StripedLruCache<Entry> entries;
+    private final long ttlMs;
+    private final Counter hits;
+    private final Counter misses;
+
+    public OrderStatusCache(@Value("${app.api.status-cache.max-entries:50000}") int maxEntries,
+            @Value("${app.api.status-cache.ttl-ms:5000}") long ttlMs,
+            MeterRegistry meterRegistry) {
+        this.ttlMs = ttlMs;
+        this.entries = new StripedLruCache<>(maxEntries);
+        this.hits = Counter.builder("status.cache.order_status")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("status.cache.order_status")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("status.cache.order_status.size", this, OrderStatusCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached view or null when it is absent or expired.
+     */
+    public OrderStatusView get(String orderId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(orderId);
+        if (entry != null && now - entry.loadedAtMillis() < ttlMs) {
+            hits.increment();
+            return entry.view();
+        }
+        if (entry != null) {
+            entries.remove(orderId, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(OrderStatusView view) {
+        long now = System.currentTimeMillis();
+        put(view, now);
+    }
+
+    /**
+     * Write-through for rows the consumer has committed, in event order. An entry is never replaced
+     * by an older event.
+     */
+    public void recordCommitted(Collection<OrderStateHistoryEntity> rows) {
+        long now = System.currentTimeMillis();
+        for (OrderStateHistoryEntity row : rows) {
+            if (row.getOrderId() != null) {
+                put(OrderStatusView.from(row), now);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void put(OrderStatusView view, long now) {
+        entries.put(view.orderId(), new Entry(view, now), (existing, update) -> update.view().eventTime() != null
+                && existing.view().eventTime() != null
+                && update.view().eventTime().isBefore(existing.view().eventTime()));
+    }
+
+    private record Entry(OrderStatusView view, long loadedAtMillis) {
+    }
+}
@@ -1,21 +1,204 @@
 package com.example.status.service;
 
+import com.example.status.dao.OrderCurrentStateDao;
 import com.example.status.dao.OrderStateHistoryDao;
-import com.example.status.entity.OrderStateHistoryEntity;
+import com.example.status.dto.HistoryCursor;
+import com.example.status.dto.OrderHistoryEntry;
+import com.example.status.dto.OrderHistoryPage;
+import com.example.status.dto.OrderStatusBatchResponse;
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderCurrentStateEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Read side of the API. Latest statuses are answered from the in-memory cache, then the optional Redis
+ * snapshot, and only then from order_current_state inside a read-only transaction, which routes the
+ * query to the read pool.
+ */
 @Service
 public class OrderStatusService {
 
+    private final OrderCurrentStateDao orderCurrentStateDao;
     private final OrderStateHistoryDao orderStateHistoryDao;
+    private final OrderStatusCache orderStatusCache;
+    private final OrderStatusSnapshotStore snapshotStore;
 
-    public OrderStatusService(OrderStateHistoryDao orderStateHistoryDao) {
+    @Value("${app.api.history.export-page-size:1000}")
+    private int EXPORT_PAGE_SIZE;
+
+    public OrderStatusService(OrderCurrentStateDao orderCurrentStateDao, OrderStateHistoryDao orderStateHistoryDao,
+            OrderStatusCache orderStatusCache, OrderStatusSnapshotStore snapshotStore) {
+        this.orderCurrentStateDao = orderCurrentStateDao;
         this.orderStateHistoryDao = orderStateHistoryDao;
+        this.orderStatusCache = orderStatusCache;
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Loads up to {@code limit} history rows after a position, or from the start when the position is null.
+     */
+    private interface HistoryPageLoader {
+
+        List<OrderHistoryEntry> load(HistoryCursor after, Limit limit);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderStatusView> getLatestOrderStatus(String orderId) {
+        OrderStatusView cached = orderStatusCache.get(orderId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        OrderStatusView snapshot = snapshotStore.get(orderId);
+        if (snapshot != null) {
+            orderStatusCache.put(snapshot);
+            return Optional.of(snapshot);
+        }
+        Optional<OrderStatusView> loaded = orderCurrentStateDao.findById(OrderCurrentStateEntity.orderKey(orderId))
+                .map(OrderStatusView::from);
+        loaded.ifPresent(orderStatusCache::put);
+        return loaded;
+    }
+
+    /**
+     * Latest state of a whole file, straight from order_current_state; only used to open a subscription.
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderStatusView> getLatestFileStatus(String fileId) {
+        return orderCurrentStateDao.findById(OrderCurrentStateEntity.fileKey(fileId))
+                .map(OrderStatusView::from);
+    }
+
+    /**
+     * Resolves many orders at once: cached ones are answered from memory, then from the snapshot with one
+     * pipelined round trip, and all the rest with a single {@code state_key IN (...)} primary-key query.
+     * Duplicate ids are answered once.
+     */
+    @Transactional(readOnly = true)
+    public OrderStatusBatchResponse getLatestOrderStatuses(List<String> orderIds) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        OrderStatusView[] resolved = new OrderStatusView[distinct.size()];
+        List<String> uncached = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            resolved[i] = orderStatusCache.get(distinct.get(i));
+            if (resolved[i] == null) {
+                uncached.add(distinct.get(i));
+            }
+        }
+
+        List<String> missingKeys = new ArrayList<>();
+        if (!uncached.isEmpty()) {
+            Map<String, OrderStatusView> snapshots = snapshotStore.getAll(uncached);
+            for (int i = 0; i < resolved.length; i++) {
+                if (resolved[i] == null) {
+                    resolved[i] = snapshots.get(distinct.get(i));
+                    if (resolved[i] != null) {
+                        orderStatusCache.put(resolved[i]);
+                    } else {
+                        missingKeys.add(OrderCurrentStateEntity.orderKey(distinct.get(i)));
+                    }
+                }
+            }
+        }
+
+        if (!missingKeys.isEmpty()) {
+            Map<String, OrderStatusView> loaded = orderCurrentStateDao.findAllById(missingKeys).stream()
+                    .map(OrderStatusView::from)
+                    .collect(Collectors.toMap(OrderStatusView::orderId, Function.identity()));
+            for (int i = 0; i < resolved.length; i++) {
+                if (resolved[i] == null) {
+                    resolved[i] = loaded.get(distinct.get(i));
+                    if (resolved[i] != null) {
+                        orderStatusCache.put(resolved[i]);
+                    }
+                }
+            }
+        }
+
+        List<OrderStatusView> statuses = new ArrayList<>(resolved.length);
+        List<String> notFound = new ArrayList<>();
+        for (int i = 0; i < resolved.length; i++) {
+            if (resolved[i] != null) {
+                statuses.add(resolved[i]);
+            } else {
+                notFound.add(distinct.get(i));
+            }
+        }
+        return new OrderStatusBatchResponse(statuses, notFound);
+    }
+
+    /**
+     * One page of an order's transitions, oldest first. Pass the previous page's nextCursor to continue.
+     *
+     * @throws IllegalArgumentException when {@code cursor} is not a cursor this service issued
+     */
+    public OrderHistoryPage getOrderHistory(String orderId, String cursor, int limit) {
+        return page(orderHistory(orderId), cursor == null ? null : HistoryCursor.decode(cursor), limit);
+    }
+
+    /**
+     * Same as {@link #getOrderHistory} for every transition of a file.
+     */
+    public OrderHistoryPage getFileHistory(String fileId, String cursor, int limit) {
+        return page(fileHistory(fileId), cursor == null ? null : HistoryCursor.decode(cursor), limit);
+    }
+
+    /**
+     * Hands every transition of an order to {@code sink}, one keyset page at a time, so memory use does
+     * not depend on how long the history is.
+     */
+    public void exportOrderHistory(String orderId, Consumer<OrderHistoryEntry> sink) {
+        export(orderHistory(orderId), sink);
+    }
+
+    public void exportFileHistory(String fileId, Consumer<OrderHistoryEntry> sink) {
+        export(fileHistory(fileId), sink);
+    }
+
+    private HistoryPageLoader orderHistory(String orderId) {
+        return (after, limit) -> after == null
+                ? orderStateHistoryDao.findOrderHistory(orderId, limit)
+                : orderStateHistoryDao.findOrderHistoryAfter(orderId, after.eventTime(), after.id(), limit);
+    }
+
+    private HistoryPageLoader fileHistory(String fileId) {
+        return (after, limit) -> after == null
+                ? orderStateHistoryDao.findFileHistory(fileId, limit)
+                : orderStateHistoryDao.findFileHistoryAfter(fileId, after.eventTime(), after.id(), limit);
+    }
+
+    /**
+     * Fetches one row more than asked for to know whether another page exists.
+     */
+    private static OrderHistoryPage page(HistoryPageLoader loader, HistoryCursor after, int limit) {
+        List<OrderHistoryEntry> rows = loader.load(after, Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new OrderHistoryPage(rows, null);
+        }
+        List<OrderHistoryEntry> entries = rows.subList(0, limit);
+        return new OrderHistoryPage(entries, HistoryCursor.after(entries.get(limit - 1)).encode());
     }
 
-    public Optional<OrderStateHistoryEntity> getLatestOrderStatus(String orderId) {
-        return orderStateHistoryDao.findTopByOrderIdOrderByEventTimeDesc(orderId);
+    private void export(HistoryPageLoader loader, Consumer<OrderHistoryEntry> sink) {
+        HistoryCursor after = null;
+        List<OrderHistoryEntry> rows;
+        do {
+            rows = loader.load(after, Limit.of(EXPORT_PAGE_SIZE));
+            rows.forEach(sink);
+            if (!rows.isEmpty()) {
+                after = HistoryCursor.after(rows.get(rows.size() - 1));
+            }
+        } while (rows.size() == EXPORT_PAGE_SIZE);
     }
 }
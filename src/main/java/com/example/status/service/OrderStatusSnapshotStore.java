@@ -0,0 +1,227 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest status of every order as a Redis hash ({@code status:order:<orderId>}), maintained by the
+ * consumer after each commit so that API instances answer hot reads without touching Postgres.
+ * Writes go through a Lua script that compares event times, so a snapshot is never replaced by an
+ * older event regardless of which instance commits first. Hashes expire after
+ * {@code app.api.status-snapshot.ttl-seconds} without an update; a miss falls back to the database.
+ * Off unless {@code app.api.status-snapshot.enabled=true}; Redis errors are logged and treated as misses.
+ */
+@Component
+public class OrderStatusSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusSnapshotStore.class);
+
+    // ARGV: ts, ttl-seconds, then field/value pairs. Returns 1 when written, 0 when the stored event is newer.
+    private static final byte[] WRITE_IF_NEWER = ("""
+            local stored = redis.call('HGET', KEYS[1], 'ts')
+            if stored and tonumber(stored) > tonumber(ARGV[1]) then
+              return 0
+            end
+            redis.call('HSET', KEYS[1], 'ts', ARGV[1], unpack(ARGV, 3))
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private static final String[] FIELDS = {
+            "orderId", "fileId", "distributorId", "previousState", "currentState", "sourceService", "eventTime"};
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final String keyPrefix;
+    private final long ttlSeconds;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+
+    public OrderStatusSnapshotStore(StringRedisTemplate redisTemplate,
+            @Value("${app.api.status-snapshot.enabled:false}") boolean enabled,
+            @Value("${app.api.status-snapshot.key-prefix:status:order:}") String keyPrefix,
+            @Value("${app.api.status-snapshot.ttl-seconds:86400}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.keyPrefix = keyPrefix;
+        this.ttlSeconds = ttlSeconds;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.errors = counter(meterRegistry, "error");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("status.cache.order_snapshot")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the newest committed row of each order in one pipeline. Rows without an order id (file-level
+     * states) are skipped.
+     */
+    public void recordCommitted(Collection<OrderStateHistoryEntity> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        Map<String, OrderStatusView> latest = new LinkedHashMap<>();
+        for (OrderStateHistoryEntity row : rows) {
+            if (row.getOrderId() != null && row.getEventTime() != null) {
+                latest.merge(row.getOrderId(), OrderStatusView.from(row),
+                        (a, b) -> b.eventTime().isBefore(a.eventTime()) ? a : b);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (OrderStatusView view : latest.values()) {
+                    write(connection, view);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Failed to update {} order snapshots: {}", latest.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * The snapshot of one order, or null when it is absent, disabled or Redis is unavailable.
+     */
+    public OrderStatusView get(String orderId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(keyPrefix + orderId);
+            return count(toView(hash));
+        } catch (Exception e) {
+            errors.increment();
+            log.debug("Snapshot read for {} failed: {}", orderId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Snapshots of many orders with one pipelined round trip. Orders without a snapshot are absent from
+     * the result.
+     */
+    public Map<String, OrderStatusView> getAll(List<String> orderIds) {
+        if (!enabled || orderIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Object> hashes;
+        try {
+            hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String orderId : orderIds) {
+                    connection.hashCommands().hGetAll(bytes(keyPrefix + orderId));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            errors.increment();
+            log.debug("Snapshot read for {} orders failed: {}", orderIds.size(), e.getMessage());
+            return Map.of();
+        }
+        Map<String, OrderStatusView> found = new HashMap<>();
+        for (Object hash : hashes) {
+            @SuppressWarnings("unchecked")
+            OrderStatusView view = count(hash instanceof Map<?, ?> map ? toView((Map<Object, Object>) map) : null);
+            if (view != null) {
+                found.put(view.orderId(), view);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Event time in microseconds; exact as a Lua number (a double) for any realistic date.
+     */
+    static long timestamp(LocalDateTime eventTime) {
+        return eventTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + eventTime.getNano() / 1_000;
+    }
+
+    /**
+     * Field/value pairs for the hash; nulls are stored as empty strings.
+     */
+    static List<String> fields(OrderStatusView view) {
+        Object[] values = {view.orderId(), view.fileId(), view.distributorId(), view.previousState(),
+                view.currentState(), view.sourceService(), view.eventTime()};
+        List<String> pairs = new ArrayList<>(FIELDS.length * 2);
+        for (int i = 0; i < FIELDS.length; i++) {
+            pairs.add(FIELDS[i]);
+            pairs.add(values[i] == null ? "" : values[i].toString());
+        }
+        return pairs;
+    }
+
+    static OrderStatusView toView(Map<Object, Object> hash) {
+        if (hash == null || hash.isEmpty() || blank(hash.get("orderId")) || blank(hash.get("eventTime"))) {
+            return null;
+        }
+        String distributorId = value(hash, "distributorId");
+        return new OrderStatusView(value(hash, "orderId"), value(hash, "fileId"),
+                distributorId == null ? null : Integer.valueOf(distributorId),
+                value(hash, "previousState"), value(hash, "currentState"), value(hash, "sourceService"),
+                LocalDateTime.parse(value(hash, "eventTime")));
+    }
+
+    private void write(RedisConnection connection, OrderStatusView view) {
+        List<String> pairs = fields(view);
+        byte[][] keysAndArgs = new byte[3 + pairs.size()][];
+        keysAndArgs[0] = bytes(keyPrefix + view.orderId());
+        keysAndArgs[1] = bytes(Long.toString(timestamp(view.eventTime())));
+        keysAndArgs[2] = bytes(Long.toString(ttlSeconds));
+        for (int i = 0; i < pairs.size(); i++) {
+            keysAndArgs[3 + i] = bytes(pairs.get(i));
+        }
+        // Plain EVAL: a pipeline cannot fall back from EVALSHA on NOSCRIPT, and the script is small.
+        connection.scriptingCommands().eval(WRITE_IF_NEWER, ReturnType.INTEGER, 1, keysAndArgs);
+    }
+
+    private OrderStatusView count(OrderStatusView view) {
+        (view == null ? misses : hits).increment();
+        return view;
+    }
+
+    private static String value(Map<Object, Object> hash, String field) {
+        Object value = hash.get(field);
+        return blank(value) ? null : value.toString();
+    }
+
+    private static boolean blank(Object value) {
+        return value == null || value.toString().isEmpty();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
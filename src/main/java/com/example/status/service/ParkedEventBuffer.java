@@ -0,0 +1,253 @@
+package com.example.status.service;
+
+import com.example.status.dto.StatusEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds child events that arrived before their trade-capture parent, indexed by the parent's
+ * order_current_state key. When a commit creates that key the waiting children are handed back in
+ * arrival order; children still waiting after {@code app.consumer.parking.ttl-ms} are handed back as
+ * expired. Parked records are not acknowledged, so a restart simply redelivers them.
+ * Callbacks run on the "status-parking" thread, never on the lane that triggered them.
+ */
+@Component
+public class ParkedEventBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ParkedEventBuffer.class);
+
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    public record Parked(MapRecord<String, Object, Object> message, StatusEvent event, String parentKey,
+            long parkedAtMillis) {
+    }
+
+    public interface Listener {
+
+        void onReleased(List<Parked> released);
+
+        void onExpired(List<Parked> expired);
+    }
+
+    private final Map<String, List<Parked>> byParent = new LinkedHashMap<>();
+    private final Set<RecordId> parkedIds = new HashSet<>();
+    // Release or expiry callbacks still running; their records are neither parked nor in a lane yet.
+    private int callbacksRunning;
+    private final ScheduledThreadPoolExecutor worker;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Counter parked;
+    private final Counter released;
+    private final Counter expired;
+    private final Counter overflow;
+    private volatile Listener listener;
+
+    public ParkedEventBuffer(@Value("${app.consumer.parking.max-entries:10000}") int maxEntries,
+            @Value("${app.consumer.parking.ttl-ms:300000}") long ttlMs,
+            MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.worker = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "status-parking");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.parked = counter(meterRegistry, "parked");
+        this.released = counter(meterRegistry, "released");
+        this.expired = counter(meterRegistry, "expired");
+        this.overflow = counter(meterRegistry, "overflow");
+        Gauge.builder("status.consumer.parked.size", this, ParkedEventBuffer::size)
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("status.consumer.parked")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the TTL sweep. Until this is called {@link #park} refuses everything.
+     */
+    public void start(Listener listener) {
+        this.listener = listener;
+        worker.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parks a child event under its parent's key. Returns false when the buffer is full or not started;
+     * the caller should fall back to its normal retry path.
+     */
+    public synchronized boolean park(String parentKey, MapRecord<String, Object, Object> message, StatusEvent event) {
+        if (listener == null || worker.isShutdown()) {
+            return false;
+        }
+        if (parkedIds.contains(message.getId())) {
+            return true;
+        }
+        if (parkedIds.size() >= maxEntries) {
+            overflow.increment();
+            return false;
+        }
+        byParent.computeIfAbsent(parentKey, k -> new ArrayList<>())
+                .add(new Parked(message, event, parentKey, System.currentTimeMillis()));
+        parkedIds.add(message.getId());
+        parked.increment();
+        return true;
+    }
+
+    /**
+     * Hands every child waiting on one of {@code parentKeys} to the listener. Cheap when nothing is parked.
+     */
+    public void release(Collection<String> parentKeys) {
+        if (parentKeys.isEmpty() || size() == 0) {
+            return;
+        }
+        List<Parked> ready = new ArrayList<>();
+        synchronized (this) {
+            for (String parentKey : parentKeys) {
+                List<Parked> waiting = byParent.remove(parentKey);
+                if (waiting != null) {
+                    ready.addAll(waiting);
+                }
+            }
+            forget(ready);
+            if (!ready.isEmpty()) {
+                callbacksRunning++;
+            }
+        }
+        if (!ready.isEmpty()) {
+            released.increment(ready.size());
+            dispatch(() -> listener.onReleased(ready));
+        }
+    }
+
+    public synchronized boolean isParked(RecordId id) {
+        return parkedIds.contains(id);
+    }
+
+    /**
+     * Whether anything from {@code stream} is parked, or any parked records are being handed back right now.
+     */
+    public synchronized boolean holds(String stream) {
+        return callbacksRunning > 0 || !parkedIds(stream).isEmpty();
+    }
+
+    public synchronized List<RecordId> parkedIds(String stream) {
+        List<RecordId> ids = new ArrayList<>();
+        for (List<Parked> waiting : byParent.values()) {
+            for (Parked p : waiting) {
+                if (p.message().getStream().equals(stream)) {
+                    ids.add(p.message().getId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    public synchronized int size() {
+        return parkedIds.size();
+    }
+
+    /**
+     * Removes and returns the children parked before {@code nowMillis - ttl}.
+     */
+    synchronized List<Parked> expire(long nowMillis) {
+        List<Parked> stale = new ArrayList<>();
+        Iterator<List<Parked>> lists = byParent.values().iterator();
+        while (lists.hasNext()) {
+            List<Parked> waiting = lists.next();
+            waiting.removeIf(p -> {
+                if (nowMillis - p.parkedAtMillis() >= ttlMs) {
+                    stale.add(p);
+                    return true;
+                }
+                return false;
+            });
+            if (waiting.isEmpty()) {
+                lists.remove();
+            }
+        }
+        forget(stale);
+        if (!stale.isEmpty()) {
+            callbacksRunning++;
+        }
+        return stale;
+    }
+
+    private void sweep() {
+        try {
+            List<Parked> stale = expire(System.currentTimeMillis());
+            if (!stale.isEmpty()) {
+                try {
+                    expired.increment(stale.size());
+                    listener.onExpired(stale);
+                } finally {
+                    callbackDone();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Parking sweep failed", e);
+        }
+    }
+
+    private void forget(List<Parked> removed) {
+        for (Parked p : removed) {
+            parkedIds.remove(p.message().getId());
+        }
+    }
+
+    private void dispatch(Runnable callback) {
+        try {
+            worker.execute(() -> {
+                try {
+                    callback.run();
+                } catch (Exception e) {
+                    log.error("Releasing parked events failed", e);
+                } finally {
+                    callbackDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            callbackDone();
+            log.warn("Parking stopped, released events stay pending for redelivery");
+        }
+    }
+
+    private synchronized void callbackDone() {
+        callbacksRunning--;
+    }
+
+    /**
+     * Drops everything parked; those records are still pending in the stream and will be redelivered.
+     */
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+        synchronized (this) {
+            byParent.clear();
+            parkedIds.clear();
+            callbacksRunning = 0;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.status.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes over records that were delivered to a consumer but never acknowledged, e.g. because the
+ * instance crashed or a lane stalled. Pages through the group's pending entries of every shard this
+ * instance owns with XPENDING and XCLAIMs to this consumer whatever has been idle for longer than
+ * {@code app.consumer.reclaim-min-idle-ms}, then feeds it back through the normal lane path.
+ * Records this instance is still holding (waiting for a retry, held behind one, or parked for a parent)
+ * are left alone: claiming counts as a delivery, and those must not use up attempts while they wait.
+ * Each run also resets their idle time with {@code XCLAIM ... JUSTID} to this consumer, which is not
+ * counted as a delivery and keeps them out of every instance's min-idle window; that is why the min-idle
+ * time has to be longer than the reclaim interval. Records whose claim would exceed {@code app.consumer.max-delivery-attempts} deliveries go straight to the DLQ instead.
+ * Runs on its own thread rather than Spring's scheduler: a run waits for its records to get through the
+ * lanes, and must not hold up the membership heartbeat that keeps this instance's shard leases alive.
+ */
+@Component
+public class PendingEntriesReclaimer {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingEntriesReclaimer.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StatusStreamConsumer consumer;
+    private final StreamAcknowledger acknowledger;
+    private final StatusEventParser eventParser;
+    private final RetryScheduler retryScheduler;
+    private final ParkedEventBuffer parkedEvents;
+    private final RetryBacklog retryBacklog;
+    private final ConsumerMembership membership;
+    private ScheduledExecutorService timer;
+
+    @Value("${app.redis.dlq-stream}")
+    private String DLQ_STREAM;
+
+    @Value("${app.redis.group}")
+    private String GROUP_NAME;
+
+    @Value("${app.consumer.reclaim-min-idle-ms:60000}")
+    private long MIN_IDLE_MS;
+
+    @Value("${app.consumer.reclaim-interval-ms:30000}")
+    private long RECLAIM_INTERVAL_MS;
+
+    @Value("${app.consumer.reclaim-batch-size:100}")
+    private int RECLAIM_BATCH_SIZE;
+
+    @Value("${app.consumer.reclaim-max-pages:100}")
+    private int MAX_PAGES;
+
+    @Value("${app.consumer.max-delivery-attempts:5}")
+    private int MAX_DELIVERY_ATTEMPTS;
+
+    public PendingEntriesReclaimer(StringRedisTemplate redisTemplate, StatusStreamConsumer consumer,
+            StreamAcknowledger acknowledger, StatusEventParser eventParser, RetryScheduler retryScheduler,
+            ParkedEventBuffer parkedEvents, RetryBacklog retryBacklog, ConsumerMembership membership) {
+        this.redisTemplate = redisTemplate;
+        this.consumer = consumer;
+        this.acknowledger = acknowledger;
+        this.eventParser = eventParser;
+        this.retryScheduler = retryScheduler;
+        this.parkedEvents = parkedEvents;
+        this.retryBacklog = retryBacklog;
+        this.membership = membership;
+    }
+
+    @PostConstruct
+    public void start() {
+        checkIdleWindow();
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "status-reclaimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::reclaimSafely, RECLAIM_INTERVAL_MS, RECLAIM_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    public void checkIdleWindow() {
+        if (MIN_IDLE_MS <= RECLAIM_INTERVAL_MS) {
+            throw new IllegalStateException("app.consumer.reclaim-min-idle-ms (" + MIN_IDLE_MS
+                    + ") must be greater than app.consumer.reclaim-interval-ms (" + RECLAIM_INTERVAL_MS
+                    + "), otherwise records held for a retry or a parent can be claimed by another instance");
+        }
+    }
+
+    // An exception escaping a run would cancel every later one.
+    private void reclaimSafely() {
+        try {
+            reclaim();
+        } catch (Exception e) {
+            log.error("Reclaim run failed", e);
+        }
+    }
+
+    public void reclaim() {
+        // Shards being handed over are still draining here; keep their held records out of the new owner's reach.
+        for (String stream : membership.releasingStreams()) {
+            refreshHeld(stream);
+        }
+        for (String stream : membership.ownedStreams()) {
+            if (!consumer.isRunning()) {
+                return;
+            }
+            refreshHeld(stream);
+            reclaim(stream);
+        }
+    }
+
+    /**
+     * Resets the idle time of the entries of {@code stream} this instance is holding. XCLAIM skips ids
+     * that are no longer pending, so records finished in the meantime are not resurrected.
+     */
+    private void refreshHeld(String stream) {
+        List<RecordId> held = new ArrayList<>(retryScheduler.scheduledIds(stream));
+        held.addAll(parkedEvents.parkedIds(stream));
+        held.addAll(retryBacklog.heldIds(stream));
+        if (held.isEmpty()) {
+            return;
+        }
+        byte[] key = stream.getBytes(StandardCharsets.UTF_8);
+        try {
+            for (int from = 0; from < held.size(); from += RECLAIM_BATCH_SIZE) {
+                List<RecordId> chunk = held.subList(from, Math.min(held.size(), from + RECLAIM_BATCH_SIZE));
+                redisTemplate.execute((RedisCallback<List<RecordId>>) connection -> connection.streamCommands()
+                        .xClaimJustId(key, GROUP_NAME, membership.consumerName(), XClaimOptions.minIdleMs(0).ids(chunk)));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh {} held entries of {}: {}", held.size(), stream, e.getMessage());
+        }
+    }
+
+    private void reclaim(String stream) {
+        Range<String> range = Range.unbounded();
+        int pages = 0;
+        int reclaimed = 0;
+        try {
+            while (pages < MAX_PAGES && consumer.isRunning()) {
+                PendingMessages page = redisTemplate.opsForStream().pending(stream, GROUP_NAME, range, RECLAIM_BATCH_SIZE);
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                reclaimed += reclaimPage(stream, page);
+                pages++;
+                if (page.size() < RECLAIM_BATCH_SIZE) {
+                    break;
+                }
+                range = Range.of(Range.Bound.exclusive(page.get(page.size() - 1).getIdAsString()), Range.Bound.unbounded());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Failed to reclaim pending entries of {}: {}", stream, e.getMessage());
+        }
+        if (reclaimed > 0) {
+            log.info("Reclaimed {} pending records from {}", reclaimed, stream);
+        }
+    }
+
+    /**
+     * Claims the idle entries of one XPENDING page that this instance is not holding, then splits them by
+     * delivery count: a claim that would exceed the limit goes to the DLQ, the rest is reprocessed.
+     * The count is taken from XPENDING, before the claim adds one.
+     */
+    int reclaimPage(String stream, PendingMessages page) throws InterruptedException {
+        List<RecordId> idle = new ArrayList<>(page.size());
+        Map<RecordId, Long> overDelivered = new HashMap<>();
+        for (PendingMessage pending : page) {
+            RecordId id = pending.getId();
+            if (pending.getElapsedTimeSinceLastDelivery().toMillis() < MIN_IDLE_MS
+                    || retryScheduler.isScheduled(id) || parkedEvents.isParked(id) || retryBacklog.isHeld(id)) {
+                continue;
+            }
+            idle.add(id);
+            if (pending.getTotalDeliveryCount() >= MAX_DELIVERY_ATTEMPTS) {
+                overDelivered.put(id, pending.getTotalDeliveryCount() + 1);
+            }
+        }
+        if (idle.isEmpty()) {
+            return 0;
+        }
+
+        // MIN-IDLE again, so an entry another consumer picked up since the XPENDING is not taken from it.
+        List<MapRecord<String, Object, Object>> claimed = redisTemplate.opsForStream().claim(stream, GROUP_NAME,
+                membership.consumerName(), XClaimOptions.minIdleMs(MIN_IDLE_MS).ids(idle));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        StreamAcknowledger.Batch deadLetters = new StreamAcknowledger.Batch(stream, GROUP_NAME, DLQ_STREAM);
+        List<MapRecord<String, Object, Object>> retry = new ArrayList<>(claimed.size());
+        for (MapRecord<String, Object, Object> record : claimed) {
+            Long delivered = overDelivered.get(record.getId());
+            if (delivered != null) {
+                deadLetters.deadLetter(record.getId(), eventParser.toJson(record.getValue()),
+                        delivered, "Exceeded " + MAX_DELIVERY_ATTEMPTS + " delivery attempts");
+            } else {
+                retry.add(record);
+            }
+        }
+
+        acknowledger.flush(deadLetters);
+        consumer.processReclaimed(retry);
+        return claimed.size();
+    }
+}
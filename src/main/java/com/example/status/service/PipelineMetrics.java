@@ -0,0 +1,107 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput counters and per-stage timers for the stream pipeline, kept in one place so the meter
+ * names stay consistent across the classes that record them. Stages are timed with
+ * {@code System.nanoTime()} deltas rather than {@link Timer.Sample} to keep the per-record path free
+ * of extra allocations.
+ * <ul>
+ *   <li>{@code status.consumer.records{outcome=consumed|acked|dead_lettered|duplicate}}</li>
+ *   <li>{@code status.consumer.stage{stage=parse|validate|lookup|insert|ack}}</li>
+ *   <li>{@code status.consumer.end_to_end}: XADD to DB commit, from the millisecond part of the entry id</li>
+ * </ul>
+ */
+@Component
+public class PipelineMetrics {
+
+    private final Counter consumed;
+    private final Counter acked;
+    private final Counter deadLettered;
+    private final Counter duplicates;
+    private final Timer parse;
+    private final Timer validate;
+    private final Timer lookup;
+    private final Timer insert;
+    private final Timer ack;
+    private final Timer endToEnd;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.consumed = records(meterRegistry, "consumed");
+        this.acked = records(meterRegistry, "acked");
+        this.deadLettered = records(meterRegistry, "dead_lettered");
+        this.duplicates = records(meterRegistry, "duplicate");
+        this.parse = stage(meterRegistry, "parse");
+        this.validate = stage(meterRegistry, "validate");
+        this.lookup = stage(meterRegistry, "lookup");
+        this.insert = stage(meterRegistry, "insert");
+        this.ack = stage(meterRegistry, "ack");
+        this.endToEnd = Timer.builder("status.consumer.end_to_end")
+                .register(meterRegistry);
+    }
+
+    private static Counter records(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("status.consumer.records")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer stage(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("status.consumer.stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    public void consumed(int records) {
+        consumed.increment(records);
+    }
+
+    public void acked(int records, int deadLetters) {
+        acked.increment(records);
+        deadLettered.increment(deadLetters);
+    }
+
+    /**
+     * Redelivered records whose row was already written; they are acknowledged without a second insert.
+     */
+    public void duplicates(int records) {
+        duplicates.increment(records);
+    }
+
+    public void parseSince(long startNanos) {
+        parse.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void validateSince(long startNanos) {
+        validate.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void lookupSince(long startNanos) {
+        lookup.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void insertSince(long startNanos) {
+        insert.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ackSince(long startNanos) {
+        ack.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Entry ids start with the XADD time in milliseconds on the Redis server, so this includes time spent
+     * waiting in the stream; clock skew between Redis and this host shows up as an offset.
+     */
+    public void committed(String recordId, long nowMillis) {
+        int dash = recordId.indexOf('-');
+        if (dash > 0) {
+            endToEnd.record(Math.max(0, nowMillis - Long.parseLong(recordId, 0, dash, 10)), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.status.service;
+
+import com.example.status.dto.StatusEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records held back behind an earlier record of the same partition key (fileId, else orderId) that is
+ * waiting in the {@link RetryScheduler}. While a key is blocked its later records are queued here in
+ * arrival order instead of being written, so a retry that succeeds late cannot leave the key with a
+ * stale previous_state or current state. Unblocking hands the queue back for processing on the lane.
+ * Held records are not acknowledged. A key is only ever touched from the lane it hashes to; the maps
+ * are concurrent because every lane shares them and the reclaimer reads the held ids.
+ */
+@Component
+public class RetryBacklog {
+
+    public record Held(MapRecord<String, Object, Object> message, StatusEvent event) {
+    }
+
+    private final Map<String, Deque<Held>> byKey = new ConcurrentHashMap<>();
+    // Held record -> its stream.
+    private final Map<RecordId, String> heldIds = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final Counter held;
+    private final Counter overflow;
+
+    public RetryBacklog(@Value("${app.consumer.retry.max-held:10000}") int maxEntries, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.held = Counter.builder("status.consumer.retry_backlog")
+                .tag("outcome", "held")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("status.consumer.retry_backlog")
+                .tag("outcome", "overflow")
+                .register(meterRegistry);
+        Gauge.builder("status.consumer.retry_backlog.size", heldIds, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marks {@code key} as having a retry pending. Repeated calls for the same retry are harmless.
+     */
+    public void block(String key) {
+        byKey.computeIfAbsent(key, k -> new ArrayDeque<>());
+    }
+
+    public boolean isBlocked(String key) {
+        return byKey.containsKey(key);
+    }
+
+    /**
+     * Queues a record behind the blocked {@code key}. Returns false when the backlog is full; the record
+     * then stays pending in the stream and comes back through the reclaimer.
+     */
+    public boolean hold(String key, MapRecord<String, Object, Object> message, StatusEvent event) {
+        Deque<Held> queue = byKey.get(key);
+        if (queue == null) {
+            return false;
+        }
+        if (heldIds.containsKey(message.getId())) {
+            return true;
+        }
+        if (heldIds.size() >= maxEntries) {
+            overflow.increment();
+            return false;
+        }
+        queue.add(new Held(message, event));
+        heldIds.put(message.getId(), message.getStream());
+        held.increment();
+        return true;
+    }
+
+    /**
+     * Ends the block on {@code key} and returns what was held behind it, oldest first.
+     */
+    public List<Held> unblock(String key) {
+        Deque<Held> queue = byKey.remove(key);
+        if (queue == null || queue.isEmpty()) {
+            return List.of();
+        }
+        List<Held> released = new ArrayList<>(queue);
+        for (Held h : released) {
+            heldIds.remove(h.message().getId());
+        }
+        return released;
+    }
+
+    public boolean isHeld(RecordId id) {
+        return heldIds.containsKey(id);
+    }
+
+    public List<RecordId> heldIds(String stream) {
+        List<RecordId> ids = new ArrayList<>();
+        heldIds.forEach((id, s) -> {
+            if (s.equals(stream)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    public int size() {
+        return heldIds.size();
+    }
+
+    /**
+     * Drops every block; the held records are still pending in the stream and will be redelivered.
+     */
+    public void clear() {
+        byKey.clear();
+        heldIds.clear();
+    }
+}
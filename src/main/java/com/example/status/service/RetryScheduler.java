@@ -0,0 +1,130 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process delayed-retry queue. A record that failed is handed over together with the task that
+ * retries it; the task runs after an exponential backoff with jitter, off the lane that failed it,
+ * so the records behind it keep flowing. Nothing is acknowledged while a retry is waiting, so the
+ * record is still in the PEL if this instance stops before the retry fires.
+ */
+@Component
+public class RetryScheduler {
+
+    private final ScheduledThreadPoolExecutor timer;
+    // Waiting record -> its stream, so the reclaimer can tell which of its pending entries are held here.
+    private final Map<RecordId, String> scheduled = new ConcurrentHashMap<>();
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final int maxPending;
+    private final Counter retriesScheduled;
+    private final Counter retriesRejected;
+
+    public RetryScheduler(@Value("${app.consumer.retry.max-attempts:5}") int maxAttempts,
+            @Value("${app.consumer.retry.initial-delay-ms:500}") long initialDelayMs,
+            @Value("${app.consumer.retry.max-delay-ms:30000}") long maxDelayMs,
+            @Value("${app.consumer.retry.max-pending:10000}") int maxPending,
+            MeterRegistry meterRegistry) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxPending = maxPending;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "status-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.retriesScheduled = Counter.builder("status.consumer.retries")
+                .tag("outcome", "scheduled")
+                .register(meterRegistry);
+        this.retriesRejected = Counter.builder("status.consumer.retries")
+                .tag("outcome", "exhausted")
+                .register(meterRegistry);
+        Gauge.builder("status.consumer.retries.pending", scheduled, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules {@code retry} of entry {@code id} of {@code stream} to run as attempt number {@code nextAttempt}.
+     * Returns false when the attempts are used up or the queue is full; the caller should dead-letter the
+     * record instead.
+     */
+    public boolean schedule(String stream, RecordId id, int nextAttempt, Runnable retry) {
+        if (nextAttempt > maxAttempts || scheduled.size() >= maxPending || timer.isShutdown()) {
+            retriesRejected.increment();
+            return false;
+        }
+        scheduled.put(id, stream);
+        try {
+            timer.schedule(() -> {
+                scheduled.remove(id);
+                retry.run();
+            }, backoffMillis(nextAttempt), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(id);
+            retriesRejected.increment();
+            return false;
+        }
+        retriesScheduled.increment();
+        return true;
+    }
+
+    public boolean isScheduled(RecordId id) {
+        return scheduled.containsKey(id);
+    }
+
+    public List<RecordId> scheduledIds(String stream) {
+        List<RecordId> ids = new ArrayList<>();
+        scheduled.forEach((id, s) -> {
+            if (s.equals(stream)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    public int pending() {
+        return scheduled.size();
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * initialDelay * 2^(attempt-2), capped at maxDelay, with "equal jitter": half fixed, half random,
+     * so a burst of failures does not retry in lockstep.
+     */
+    long backoffMillis(int attempt) {
+        int exponent = Math.max(0, Math.min(attempt - 2, 30));
+        long delay = Math.min(maxDelayMs, initialDelayMs << exponent);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Drops waiting retries; their records stay unacknowledged and are reclaimed or redelivered later.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        scheduled.clear();
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.example.status.entity.OrderCurrentStateEntity.fileKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderKey;
+
+/**
+ * Fan-out of committed transitions to this instance's SSE subscribers, keyed like order_current_state
+ * ({@code order|X}, {@code file|X}). Publishing only enqueues: each subscriber has its own bounded
+ * buffer drained by a small sender pool, so a slow client never holds up a lane. When a buffer is full
+ * the oldest transition is dropped, since subscribers mostly care about the latest state.
+ * A subscriber is registered before its snapshot of the current state is read, so nothing committed in
+ * between is missed; transitions older than the snapshot are then dropped instead of being sent after it.
+ * Transitions committed by any instance arrive through {@link StatusChangeRelay}.
+ */
+@Component
+public class StatusChangeHub {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusChangeHub.class);
+
+    static final String EVENT_NAME = "status";
+
+    /**
+     * Where a subscriber's events go; an {@link SseEmitter} in production.
+     */
+    interface Sink {
+
+        void send(OrderStatusView status) throws IOException;
+    }
+
+    private final Map<String, Set<Subscriber>> byKey = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final Counter published;
+    private final Counter dropped;
+
+    public StatusChangeHub(@Value("${app.api.sse.max-subscribers:10000}") int maxSubscribers,
+            @Value("${app.api.sse.buffer-size:64}") int bufferSize,
+            @Value("${app.api.sse.timeout-ms:300000}") long timeoutMs,
+            @Value("${app.api.sse.sender-threads:2}") int senderThreads,
+            MeterRegistry meterRegistry) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "status-sse-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.published = Counter.builder("status.api.sse.events")
+                .tag("outcome", "queued")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("status.api.sse.events")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        Gauge.builder("status.api.sse.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens an SSE stream for one key. The subscriber is registered first and {@code current} is read
+     * afterwards; the stream starts with that state unless its ETag equals {@code lastEventId} (the client
+     * already has it). Returns null when the subscriber limit is reached.
+     */
+    public SseEmitter subscribe(String key, Supplier<Optional<OrderStatusView>> current, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = register(key, status -> emitter.send(SseEmitter.event()
+                .id(status.etag())
+                .name(EVENT_NAME)
+                .data(status)));
+        if (subscriber == null) {
+            return null;
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscriber.onFailure = emitter::completeWithError;
+        OrderStatusView snapshot;
+        try {
+            snapshot = current.get().orElse(null);
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        subscriber.start(snapshot, snapshot != null && !snapshot.etag().equals(lastEventId));
+        return emitter;
+    }
+
+    Subscriber subscribe(String key, Sink sink) {
+        Subscriber subscriber = register(key, sink);
+        if (subscriber != null) {
+            subscriber.start(null, false);
+        }
+        return subscriber;
+    }
+
+    /**
+     * Adds a subscriber that buffers transitions but sends nothing until {@link Subscriber#start}.
+     */
+    Subscriber register(String key, Sink sink) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(key, sink);
+        byKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        return subscriber;
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscriberCount.decrementAndGet();
+            byKey.computeIfPresent(subscriber.key, (k, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    /**
+     * Offers committed rows to this instance's subscribers. Costs one read of an int when nobody is subscribed.
+     */
+    public void publish(Collection<OrderStateHistoryEntity> committed) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        for (OrderStateHistoryEntity row : committed) {
+            OrderStatusView status = null;
+            if (row.getOrderId() != null) {
+                status = offer(orderKey(row.getOrderId()), row, status);
+            }
+            if (row.getFileId() != null) {
+                offer(fileKey(row.getFileId()), row, status);
+            }
+        }
+    }
+
+    /**
+     * Offers transitions relayed from the instance that committed them; see {@link StatusChangeRelay}.
+     */
+    public void deliver(Collection<OrderStatusView> transitions) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        for (OrderStatusView status : transitions) {
+            if (status.orderId() != null) {
+                offer(orderKey(status.orderId()), status);
+            }
+            if (status.fileId() != null) {
+                offer(fileKey(status.fileId()), status);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private OrderStatusView offer(String key, OrderStateHistoryEntity row, OrderStatusView status) {
+        Set<Subscriber> subscribers = byKey.get(key);
+        if (subscribers == null) {
+            return status;
+        }
+        OrderStatusView view = status != null ? status : OrderStatusView.from(row);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(view);
+        }
+        return view;
+    }
+
+    private void offer(String key, OrderStatusView status) {
+        Set<Subscriber> subscribers = byKey.get(key);
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(status);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    final class Subscriber {
+
+        private final String key;
+        private final Sink sink;
+        private final ArrayDeque<OrderStatusView> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Consumer<Throwable> onFailure = e -> { };
+        // Guarded by buffer. Nothing is sent before start(); afterwards transitions older than the snapshot are dropped.
+        private boolean started;
+        private OrderStatusView snapshot;
+
+        private Subscriber(String key, Sink sink) {
+            this.key = key;
+            this.sink = sink;
+        }
+
+        /**
+         * Starts sending: transitions buffered since {@link #register} that are not newer than
+         * {@code snapshot} are discarded, and {@code snapshot} itself goes first when {@code send} is set.
+         */
+        void start(OrderStatusView snapshot, boolean send) {
+            synchronized (buffer) {
+                this.snapshot = snapshot;
+                buffer.removeIf(this::stale);
+                if (send) {
+                    buffer.addFirst(snapshot);
+                }
+                started = true;
+            }
+            kick();
+        }
+
+        void offer(OrderStatusView status) {
+            if (closed.get()) {
+                return;
+            }
+            boolean sending;
+            synchronized (buffer) {
+                if (started && stale(status)) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped.increment();
+                }
+                buffer.addLast(status);
+                sending = started;
+            }
+            published.increment();
+            if (sending) {
+                kick();
+            }
+        }
+
+        private boolean stale(OrderStatusView status) {
+            if (snapshot == null || snapshot.eventTime() == null || status.eventTime() == null) {
+                return false;
+            }
+            return status.eventTime().isBefore(snapshot.eventTime()) || status.equals(snapshot);
+        }
+
+        private void kick() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                OrderStatusView next;
+                synchronized (buffer) {
+                    next = buffer.pollFirst();
+                    if (next == null) {
+                        draining.set(false);
+                        return;
+                    }
+                }
+                try {
+                    sink.send(next);
+                } catch (Exception e) {
+                    log.debug("Dropping SSE subscriber of {}: {}", key, e.getMessage());
+                    unsubscribe(this);
+                    onFailure.accept(e);
+                    return;
+                }
+            }
+        }
+    }
+}
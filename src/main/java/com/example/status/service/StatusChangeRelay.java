@@ -0,0 +1,175 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderStateHistoryEntity;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries committed transitions from the instance that consumed them to the SSE subscribers of every
+ * instance. The consumer publishes each commit as one JSON message on {@code app.api.sse.channel}; API
+ * instances subscribe to the channel and hand the transitions to their {@link StatusChangeHub}, so a client
+ * gets its events whichever pod it is connected to, including API-only pods and consumer standbys. Local
+ * subscribers are served through the channel as well, never directly, so nothing is delivered twice.
+ * Pub/sub is at-most-once: events published while an instance is not subscribed are not replayed, which
+ * is the same guarantee a reconnecting client already has. With {@code app.api.sse.relay.enabled=false}
+ * transitions only reach subscribers of the instance that committed them. Redis errors are logged and the
+ * events dropped.
+ */
+@Component
+public class StatusChangeRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusChangeRelay.class);
+
+    private static final long RETRY_MS = RedisMessageListenerContainer.DEFAULT_RECOVERY_INTERVAL;
+
+    private static final TypeReference<List<OrderStatusView>> VIEWS = new TypeReference<>() { };
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final StatusChangeHub hub;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean subscribing;
+    private final String channel;
+    private final Counter errors;
+    private volatile RedisMessageListenerContainer container;
+    private ExecutorService listener;
+    private ScheduledExecutorService subscriber;
+
+    public StatusChangeRelay(StringRedisTemplate redisTemplate, RedisConnectionFactory connectionFactory,
+            StatusChangeHub hub, ObjectMapper objectMapper,
+            @Value("${app.api.sse.relay.enabled:true}") boolean enabled,
+            @Value("${app.api.enabled:true}") boolean apiEnabled,
+            @Value("${app.api.sse.channel:status-changes}") String channel,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.hub = hub;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.subscribing = enabled && apiEnabled;
+        this.channel = channel;
+        this.errors = Counter.builder("status.api.sse.relay.errors")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the channel on instances that serve the API, in the background and retrying until Redis
+     * is reachable, so startup never waits for it. Once subscribed the container reconnects by itself.
+     * Messages are handled one at a time on a dedicated thread; handling only enqueues into the hub's
+     * per-subscriber buffers.
+     */
+    @PostConstruct
+    public void start() {
+        if (!subscribing) {
+            return;
+        }
+        listener = Executors.newSingleThreadExecutor(daemon("status-sse-relay"));
+        subscriber = Executors.newSingleThreadScheduledExecutor(daemon("status-sse-relay-subscriber"));
+        subscriber.execute(this::subscribe);
+    }
+
+    private void subscribe() {
+        RedisMessageListenerContainer candidate = new RedisMessageListenerContainer();
+        candidate.setConnectionFactory(connectionFactory);
+        candidate.setTaskExecutor(listener);
+        candidate.addMessageListener((message, pattern) -> receive(message.getBody()), new ChannelTopic(channel));
+        try {
+            candidate.afterPropertiesSet();
+            candidate.start();
+            container = candidate;
+            log.info("Relaying status changes to SSE subscribers over channel {}", channel);
+        } catch (Exception e) {
+            destroy(candidate);
+            log.warn("Subscribing to channel {} failed, retrying in {} ms: {}", channel, RETRY_MS, e.getMessage());
+            subscriber.schedule(this::subscribe, RETRY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Called by the consumer after a commit. One PUBLISH per commit, sent from the committing lane.
+     */
+    public void publish(Collection<OrderStateHistoryEntity> committed) {
+        if (committed.isEmpty()) {
+            return;
+        }
+        if (!enabled) {
+            hub.publish(committed);
+            return;
+        }
+        List<OrderStatusView> views = new ArrayList<>(committed.size());
+        for (OrderStateHistoryEntity row : committed) {
+            views.add(OrderStatusView.from(row));
+        }
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(views));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Failed to relay {} status changes: {}", views.size(), e.getMessage());
+        }
+    }
+
+    void receive(byte[] body) {
+        if (hub.subscriberCount() == 0) {
+            return;
+        }
+        try {
+            hub.deliver(objectMapper.readValue(new String(body, StandardCharsets.UTF_8), VIEWS));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Dropping unreadable status change message: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscriber != null) {
+            subscriber.shutdownNow();
+        }
+        if (container != null) {
+            destroy(container);
+        }
+        if (listener != null) {
+            listener.shutdownNow();
+        }
+    }
+
+    private static void destroy(RedisMessageListenerContainer container) {
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.debug("Closing the status change subscription failed: {}", e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.status.service;
+
+import com.example.status.dto.StatusEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns the {@code payload} field of a stream record into a {@link StatusEvent}.
+ * One ObjectMapper is configured at startup and shared by every lane; JSON is bound straight
+ * into the typed record instead of an intermediate Map.
+ */
+@Component
+public class StatusEventParser {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusEventParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader eventReader;
+
+    public StatusEventParser() {
+        this.objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.eventReader = objectMapper.readerFor(StatusEvent.class);
+    }
+
+    /**
+     * Returns null when the payload is missing or cannot be read as JSON nor as {@code {key:value,...}}.
+     */
+    public StatusEvent parse(Object payloadObj) {
+        if (payloadObj == null) {
+            return null;
+        }
+        if (payloadObj instanceof Map) {
+            return objectMapper.convertValue(payloadObj, StatusEvent.class);
+        }
+        String payloadStr = payloadObj.toString();
+        try {
+            return eventReader.readValue(payloadStr);
+        } catch (Exception ex) {
+            log.debug("JSON parse failed, fallback for: {}", payloadStr);
+            Map<String, Object> fallback = parseSimpleKeyValueString(payloadStr);
+            return fallback.isEmpty() ? null : objectMapper.convertValue(fallback, StatusEvent.class);
+        }
+    }
+
+    public String toJson(Map<?, ?> map) {
+        try {
+            return objectMapper.writeValueAsString(map);
+        } catch (Exception e) {
+            return String.valueOf(map);
+        }
+    }
+
+    /**
+     * Reverse of {@link #toJson} for a flat stream entry; non-string values are kept as JSON text.
+     * Returns null when the text is not a JSON object.
+     */
+    public Map<String, String> toFields(String json) {
+        try {
+            Map<String, Object> raw = objectMapper.readValue(json, Map.class);
+            Map<String, String> fields = new HashMap<>(raw.size());
+            for (Map.Entry<String, Object> entry : raw.entrySet()) {
+                Object value = entry.getValue();
+                fields.put(entry.getKey(), value == null || value instanceof String
+                        ? (String) value : objectMapper.writeValueAsString(value));
+            }
+            return fields;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Map<String, Object> parseSimpleKeyValueString(String str) {
+        Map<String, Object> map = new HashMap<>();
+        String cleaned = str.replaceAll("[{}]", "").trim();
+        if (cleaned.isEmpty()) return map;
+        for (String pair : cleaned.split(",")) {
+            String[] kv = pair.split(":", 2);
+            if (kv.length == 2) {
+                map.put(kv[0].trim(), kv[1].trim());
+            }
+        }
+        return map;
+    }
+}
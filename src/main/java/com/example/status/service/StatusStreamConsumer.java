@@ -1,35 +1,43 @@
 package com.example.status.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.data.redis.connection.stream.*;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.beans.factory.annotation.Autowired;
+import com.example.status.dao.OrderStateHistoryBatchWriter;
 import com.example.status.dao.OrderStateHistoryDao;
+import com.example.status.dto.StatusEvent;
+import com.example.status.entity.OrderCurrentStateEntity;
 import com.example.status.entity.OrderStateHistoryEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.time.Duration;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import org.springframework.data.domain.Range;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import org.springframework.data.redis.connection.stream.StreamRecords;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
-public class StatusStreamConsumer {
+public class StatusStreamConsumer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusStreamConsumer.class);
 
     @Autowired
     private StringRedisTemplate redisTemplate;
 
-    private static final int MAX_DELIVERY_ATTEMPTS = 5;
-
     @Value("${app.redis.stream}")
     private String STREAM_KEY;
 
@@ -39,281 +47,663 @@ public class StatusStreamConsumer {
     @Value("${app.redis.group}")
     private String GROUP_NAME;
 
-    @Value("${app.redis.consumer}")
-    private String CONSUMER_NAME;
+    @Value("${app.consumer.batch-size:100}")
+    private int BATCH_SIZE;
+
+    @Value("${app.consumer.lanes:8}")
+    private int LANE_COUNT;
+
+    @Value("${app.consumer.lane-queue-capacity:1000}")
+    private int LANE_QUEUE_CAPACITY;
+
+    @Value("${app.consumer.block-timeout-ms:2000}")
+    private long BLOCK_TIMEOUT_MS;
+
+    @Value("${app.consumer.enabled:true}")
+    private boolean CONSUMER_ENABLED = true;
+
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private volatile boolean running;
+
+    private Thread pollerThread;
+
+    private KeyPartitionedDispatcher dispatcher;
+
+    // Stream -> lane tasks and scheduled retries not finished yet, so a shard is only handed over once drained.
+    private final Map<String, AtomicInteger> laneWork = new ConcurrentHashMap<>();
 
     @Autowired
     private OrderStateHistoryDao historyDao;
 
-     @PostConstruct
-    public void initGroup() {
-        try {
-            redisTemplate.opsForStream().createGroup(STREAM_KEY, GROUP_NAME);
-            System.out.println("Consumer group created: " + GROUP_NAME);
-        } catch (Exception e) {
-            if (e.getMessage() != null && e.getMessage().contains("BUSYGROUP")) {
-                System.out.println(" Consumer group already exists: " + GROUP_NAME);
-            } else {
-                System.err.println(" Failed to create consumer group: " + e.getMessage());
+    @Autowired
+    private OrderStateHistoryBatchWriter batchWriter;
+
+    @Autowired
+    private LatestStateCache latestStateCache;
+
+    @Autowired
+    private OrderStatusCache orderStatusCache;
+
+    @Autowired
+    private StatusChangeRelay statusChangeRelay;
+
+    @Autowired
+    private OrderStatusSnapshotStore orderStatusSnapshotStore;
+
+    @Autowired
+    private StatusEventParser eventParser;
+
+    @Autowired
+    private StatusTransitionBuilder transitionBuilder;
+
+    @Autowired
+    private StreamAcknowledger acknowledger;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private ParkedEventBuffer parkedEvents;
+
+    @Autowired
+    private RetryBacklog retryBacklog;
+
+    @Autowired
+    private ConsumerMembership membership;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Runs on the poller thread, so startup does not wait for Redis.
+     */
+    private void initGroup() {
+        for (String stream : membership.allStreams()) {
+            try {
+                redisTemplate.opsForStream().createGroup(stream, GROUP_NAME);
+                log.info("Consumer group created: {} on {}", GROUP_NAME, stream);
+            } catch (Exception e) {
+                if (e.getMessage() != null && e.getMessage().contains("BUSYGROUP")) {
+                    log.info("Consumer group already exists: {} on {}", GROUP_NAME, stream);
+                } else {
+                    log.error("Failed to create consumer group on {}: {}", stream, e.getMessage());
+                }
             }
         }
     }
 
-    @Scheduled(fixedDelay = 10000)
+    /**
+     * False with {@code app.consumer.enabled=false}, e.g. for the DLQ replay CLI.
+     */
+    @Override
+    public boolean isAutoStartup() {
+        return CONSUMER_ENABLED;
+    }
+
+    @Override
+    public void start() {
+        dispatcher = new KeyPartitionedDispatcher(LANE_COUNT, LANE_QUEUE_CAPACITY, meterRegistry);
+        running = true;
+        parkedEvents.start(new ParkedEventBuffer.Listener() {
+            @Override
+            public void onReleased(List<ParkedEventBuffer.Parked> released) {
+                replayReleased(released);
+            }
+
+            @Override
+            public void onExpired(List<ParkedEventBuffer.Parked> expired) {
+                deadLetterExpired(expired);
+            }
+        });
+        pollerThread = new Thread(this::startConsuming, "status-stream-poller");
+        pollerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        retryScheduler.shutdown();
+        parkedEvents.shutdown();
+        retryBacklog.clear();
+        laneWork.clear();
+        if (pollerThread != null) {
+            pollerThread.interrupt();
+            try {
+                pollerThread.join(BLOCK_TIMEOUT_MS + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dispatcher != null) {
+            try {
+                if (!dispatcher.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Lanes did not drain in {}s, unacked records will be redelivered",
+                            SHUTDOWN_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Consumer stopped for stream: {}", STREAM_KEY);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
     private void startConsuming() {
-        System.out.println("Consumer loop started for stream: " + STREAM_KEY + ", group: " + GROUP_NAME);
-        
+        initGroup();
+        log.info("Consumer loop started for stream: {}, group: {}, consumer: {} (batch={}, lanes={})",
+                STREAM_KEY, GROUP_NAME, membership.consumerName(), BATCH_SIZE, LANE_COUNT);
+
+        Consumer consumer = Consumer.from(GROUP_NAME, membership.consumerName());
+        StreamReadOptions readOptions = StreamReadOptions.empty()
+                .count(BATCH_SIZE)
+                .block(Duration.ofMillis(BLOCK_TIMEOUT_MS));
+
+        while (running) {
             try {
-                StreamOffset<String> offset = StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed());
+                handOverDrained();
+                List<String> streams = membership.ownedStreams();
+                if (streams.isEmpty()) {
+                    if (!pause(BLOCK_TIMEOUT_MS)) {
+                        break;
+                    }
+                    continue;
+                }
                 List<MapRecord<String, Object, Object>> messages = redisTemplate.opsForStream().read(
-                        Consumer.from(GROUP_NAME, CONSUMER_NAME),
-                        StreamReadOptions.empty().count(10).block(Duration.ofSeconds(5)),
-                        offset);
+                        consumer, readOptions, offsets(streams));
 
                 if (messages != null && !messages.isEmpty()) {
-                    for (MapRecord<String, Object, Object> message : messages) {
-                        handleWithAck(message);
-                    }
-                }else{
-                    System.out.println("No new messages to process");
-                    return;
+                    processBatch(messages);
                 }
-
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
-                System.err.println("Error while reading stream: " + e.getMessage());
-                
+                if (!running) {
+                    break;
+                }
+                log.error("Error while reading stream: {}", e.getMessage());
+                if (!pause(ERROR_BACKOFF_MS)) {
+                    break;
+                }
             }
-        
+        }
     }
 
-   private void handleWithAck(MapRecord<String, Object, Object> message) {
-    String recordId = message.getId().getValue();
-    Map<Object, Object> data = message.getValue();
-
-    int attempts = 0;
-    boolean success = false;
+    /**
+     * Shards given up by the membership are no longer read, but are only released to their new owner once
+     * nothing taken from them is still in a lane, waiting for a retry, held behind one or parked.
+     */
+    private void handOverDrained() {
+        for (String stream : membership.releasingStreams()) {
+            AtomicInteger work = laneWork.get(stream);
+            if ((work == null || work.get() == 0) && retryBacklog.heldIds(stream).isEmpty()
+                    && !parkedEvents.holds(stream)) {
+                membership.release(stream);
+            }
+        }
+    }
 
-    while (attempts < 3) {
+    /**
+     * Submits lane work for records of {@code stream}, counted in {@link #laneWork} until it has run.
+     */
+    private Future<?> submit(String stream, int lane, int records, Runnable task) {
+        AtomicInteger work = laneWork.computeIfAbsent(stream, s -> new AtomicInteger());
+        work.incrementAndGet();
         try {
-            attempts++;
-            success = writeToDatabase(recordId, data);
-
-            if (success) break;
+            return dispatcher.submitToLane(lane, records, () -> {
+                try {
+                    task.run();
+                } finally {
+                    work.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            work.decrementAndGet();
+            throw e;
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println("DB error attempt " + attempts + " for " + recordId + ": " + e.getMessage());
+    @SuppressWarnings("unchecked")
+    private StreamOffset<String>[] offsets(List<String> streams) {
+        StreamOffset<String>[] offsets = new StreamOffset[streams.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = StreamOffset.create(streams.get(i), ReadOffset.lastConsumed());
         }
+        return offsets;
     }
 
-    if (success) {
-        redisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP_NAME, message.getId());
-        redisTemplate.opsForStream().delete(STREAM_KEY, message.getId());
-        System.out.println("ACK SENT after " + attempts + " attempts for " + recordId);
+    /**
+     * Splits a read batch by the lane owning each record's fileId/orderId and waits for every lane,
+     * so the next XREADGROUP only happens once the database has caught up.
+     * Records of one file, and records of one order that carry no fileId, share a lane, which keeps their
+     * previous_state chaining sequential; see {@link #partitionKey}.
+     * A read over several shards is also split by stream, since each stream is acknowledged separately.
+     */
+    private void processBatch(List<MapRecord<String, Object, Object>> messages) throws InterruptedException {
+        metrics.consumed(messages.size());
+        Map<LaneKey, List<PendingRecord>> byLane = new LinkedHashMap<>();
+        for (MapRecord<String, Object, Object> message : messages) {
+            long parseStart = System.nanoTime();
+            StatusEvent event = eventParser.parse(message.getValue().get("payload"));
+            metrics.parseSince(parseStart);
+            LaneKey lane = new LaneKey(message.getStream(), dispatcher.laneFor(partitionKey(message, event)));
+            byLane.computeIfAbsent(lane, l -> new ArrayList<>()).add(new PendingRecord(message, event));
+        }
 
-    } else {
-        System.err.println("FAILED after 3 attempts. Moving to DLQ: " + recordId);
-        moveToDlq(message.getId(), attempts, "DB failures");
+        List<Future<?>> inFlight = new ArrayList<>(byLane.size());
+        for (Map.Entry<LaneKey, List<PendingRecord>> lane : byLane.entrySet()) {
+            List<PendingRecord> records = lane.getValue();
+            inFlight.add(submit(lane.getKey().stream(), lane.getKey().lane(), records.size(),
+                    () -> handleBatchWithAck(records)));
+        }
+        for (Future<?> future : inFlight) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.error("Worker failed", e.getCause());
+            }
+        }
     }
-}
-
 
-            
+    /**
+     * Runs records claimed back from the pending entries list through the normal lane path.
+     * Returns false when the consumer is not running and nothing was processed.
+     */
+    public boolean processReclaimed(List<MapRecord<String, Object, Object>> messages) throws InterruptedException {
+        if (!running || messages.isEmpty()) {
+            return false;
+        }
+        processBatch(messages);
+        return true;
+    }
 
-    private void moveToDlq(RecordId recordId, long attempts, String reason) {
+    private boolean pause(long millis) {
         try {
-            List<MapRecord<String, Object, Object>> original = redisTemplate.opsForStream().range(
-                    STREAM_KEY,
-                    Range.closed(recordId.getValue(), recordId.getValue()));
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            Map<String, Object> dlqPayload = new java.util.HashMap<>();
-            dlqPayload.put("failed_record_id", recordId.getValue());
-            dlqPayload.put("reason", reason);
-            dlqPayload.put("attempts", String.valueOf(attempts));
+    /**
+     * Same precedence as findPreviousState: a fileId chain is keyed by fileId, otherwise by orderId.
+     * An event's lane is chosen before anything is known about its order, so an event that carries only an
+     * orderId does not share a lane with events of the same order that also carry a fileId. Order-level
+     * chaining (previous_state from {@code order|<orderId>}) is therefore only sequential among the events
+     * of an order that come without a fileId; one arriving right behind a fileId event of its order may be
+     * built before that event commits. The caches and order_current_state keep the newest event either way.
+     */
+    private String partitionKey(MapRecord<String, Object, Object> message, StatusEvent event) {
+        if (event == null) {
+            return message.getId().getValue();
+        }
+        if (event.fileId() != null) {
+            return event.fileId();
+        }
+        return event.orderId() != null ? event.orderId() : message.getId().getValue();
+    }
 
-            if (original != null && !original.isEmpty()) {
-                dlqPayload.put("stream_payload", toJson(original.get(0).getValue()));
+    /**
+     * Builds the rows for one lane's share of a read batch and inserts them in a single transaction.
+     * Records that cannot be built go through the per-record retry path afterwards, together with every
+     * later record of the same key in the batch, so a key's records are never written out of order.
+     * If the insert itself fails, every record falls back to that path so one bad row cannot hold back the rest.
+     * Records of a key that is waiting for a retry are held back in the {@link RetryBacklog} instead.
+     * Acks and DLQ moves for the whole share are sent to Redis in one pipeline at the end.
+     */
+    private void handleBatchWithAck(List<PendingRecord> records) {
+        StreamAcknowledger.Batch acks = new StreamAcknowledger.Batch(records.get(0).message().getStream(),
+                GROUP_NAME, DLQ_STREAM);
+        Map<String, String> batchStates = new HashMap<>();
+        List<OrderStateHistoryEntity> rows = new ArrayList<>(records.size());
+        List<RecordId> ids = new ArrayList<>(records.size());
+        List<PendingRecord> candidates = new ArrayList<>(records.size());
+        List<PendingRecord> rejected = new ArrayList<>();
+        Set<String> rejectedKeys = new HashSet<>();
+
+        for (PendingRecord record : records) {
+            String key = partitionKey(record.message(), record.event());
+            if (holdBehindRetry(key, record)) {
+                continue;
+            }
+            candidates.add(record);
+            if (rejectedKeys.contains(key)) {
+                rejected.add(record);
+                continue;
+            }
+            String recordId = record.message().getId().getValue();
+            try {
+                OrderStateHistoryEntity entity = transitionBuilder.build(originId(record.message()), record.event(),
+                        batchStates);
+                if (entity == null) {
+                    rejected.add(record);
+                    rejectedKeys.add(key);
+                    continue;
+                }
+                entity.setStreamKey(record.message().getStream());
+                rows.add(entity);
+                ids.add(record.message().getId());
+            } catch (Exception e) {
+                log.debug("Validation failed for {}: {}", recordId, e.getMessage());
+                rejected.add(record);
+                rejectedKeys.add(key);
             }
+        }
 
-            redisTemplate.opsForStream().add(StreamRecords.newRecord()
-                    .in(DLQ_STREAM)
-                    .ofMap(dlqPayload));
+        boolean batchCommitted = rows.isEmpty();
+        if (!rows.isEmpty()) {
+            try {
+                long insertStart = System.nanoTime();
+                List<OrderStateHistoryEntity> inserted = batchWriter.writeBatch(rows);
+                metrics.insertSince(insertStart);
+                onCommitted(inserted);
+                acks.complete(ids);
+                batchCommitted = true;
+                if (inserted.size() < rows.size()) {
+                    metrics.duplicates(rows.size() - inserted.size());
+                    log.debug("Skipped {} already written records", rows.size() - inserted.size());
+                }
+                log.debug("Saved batch of {} rows", inserted.size());
+            } catch (Exception e) {
+                log.warn("Batch insert of {} rows failed, retrying one by one: {}", rows.size(), e.getMessage());
+            }
+        }
 
-            redisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP_NAME, recordId);
-            redisTemplate.opsForStream().delete(STREAM_KEY, recordId);
-            System.err.println("Moved record to DLQ after " + attempts + " attempts: " + recordId.getValue());
-        } catch (Exception e) {
-            System.err.println("Failed to move record to DLQ: " + recordId.getValue() + " because " + e.getMessage());
+        for (PendingRecord record : batchCommitted ? rejected : candidates) {
+            if (!holdBehindRetry(partitionKey(record.message(), record.event()), record)) {
+                handleWithAck(record.message(), record.event(), 1, acks);
+            }
         }
-    }
 
-    private String toJson(Map<Object, Object> map) {
         try {
-            return new ObjectMapper().writeValueAsString(map);
+            acknowledger.flush(acks);
+            log.debug("ACK SENT for {} records ({} to DLQ)", acks.size(), acks.deadLetterCount());
         } catch (Exception e) {
-            return String.valueOf(map);
+            log.error("Failed to ack {} records, they will be redelivered: {}", acks.size(), e.getMessage());
         }
     }
 
-    private boolean writeToDatabase(String recordId, Map<Object, Object> data) throws Exception {
-        Map<String, Object> payload = parsePayload(data.get("payload"));
-        if (payload == null) {
-            System.err.println("Payload missing or invalid for record: " + recordId);
+    /**
+     * True when an earlier record of {@code key} is waiting for a retry; the record then waits behind it,
+     * unacknowledged. If the backlog is full it is simply left pending for the reclaimer.
+     */
+    private boolean holdBehindRetry(String key, PendingRecord record) {
+        if (!retryBacklog.isBlocked(key)) {
             return false;
         }
+        if (!retryBacklog.hold(key, record.message(), record.event())) {
+            log.warn("Retry backlog full, leaving {} pending for redelivery", record.message().getId().getValue());
+        }
+        return true;
+    }
 
-        String sourceService = getStringValue(payload, "sourceservice", "source_service", "sourceService");
-        String status = getStringValue(payload, "status");
-        String fileId = getStringValue(payload, "fileId", "files_id", "file_id");
-        String orderId = getStringValue(payload, "orderId", "order_id");
-        Integer distributorId = getIntValue(payload, "distributorId", "distributor_id", "firmId", "firm_id");
-
-        if (status == null || sourceService == null) {
-            System.err.println("Missing status/sourceService for record: " + recordId);
+    /**
+     * Makes one attempt at a single record. A failure is not retried in place: the record stays
+     * unacknowledged and is handed to the {@link RetryScheduler}, which runs it again on its lane after
+     * a backoff. The lane carries on with other keys, while later records of the same key are held in
+     * the {@link RetryBacklog} until the retry is over. A child whose parent has not arrived is parked
+     * until it does instead. Payloads that can never succeed and records out of attempts go to the DLQ.
+     * Returns true when the record was handed to the RetryScheduler.
+     */
+    private boolean handleWithAck(MapRecord<String, Object, Object> message, StatusEvent event, int attempt,
+            StreamAcknowledger.Batch acks) {
+        String recordId = message.getId().getValue();
+        if (!isProcessable(event)) {
+            moveToDlq(message, attempt, "Invalid payload", acks);
             return false;
         }
 
-        boolean isTradeCapture = "trade-capture".equalsIgnoreCase(sourceService);
-        validateIdentifiers(recordId, sourceService, isTradeCapture, fileId, orderId, distributorId);
-
-        LocalDateTime eventTime = extractEventTime(recordId);
-        String previousState = findPreviousState(fileId, orderId, distributorId);
-
-        OrderStateHistoryEntity entity = new OrderStateHistoryEntity();
-        entity.setFileId(fileId);
-        entity.setOrderId(orderId);
-        entity.setDistributorId(distributorId);
-        entity.setPreviousState(previousState);
-        entity.setCurrentState(status);
-        entity.setSourceService(sourceService);
-        entity.setEventTime(eventTime);
-
-        historyDao.save(entity);
+        String failure;
+        try {
+            if (writeToDatabase(message, event)) {
+                acks.complete(message.getId());
+                return false;
+            }
+            failure = "Record rejected";
+        } catch (MissingParentException e) {
+            if (park(message, event, e)) {
+                return false;
+            }
+            failure = e.getMessage();
+        } catch (InvalidEventException e) {
+            log.warn("Invalid record {}: {}", recordId, e.getMessage());
+            moveToDlq(message, attempt, e.getMessage(), acks);
+            return false;
+        } catch (Exception e) {
+            failure = e.getMessage();
+            log.warn("Attempt {} failed for {}: {}", attempt, recordId, failure);
+        }
 
-        System.out.println("Saved to DB: fileId=" + fileId +
-                " orderId=" + orderId +
-                " [distributor=" + distributorId + "] : " +
-                previousState + " -> " + status +
-                " (source: " + sourceService + ")");
+        if (scheduleRetry(message, event, attempt + 1)) {
+            return true;
+        }
+        log.warn("FAILED after {} attempts. Moving to DLQ: {}", attempt, recordId);
+        moveToDlq(message, attempt, failure != null ? failure : "DB failures", acks);
+        return false;
+    }
 
+    /**
+     * The parent may have been committed on another lane between the failed lookup and the park,
+     * in which case nobody would release it, so the parent is looked up once more after parking.
+     */
+    private boolean park(MapRecord<String, Object, Object> message, StatusEvent event, MissingParentException missing) {
+        if (!running || !parkedEvents.park(missing.parentKey(), message, event)) {
+            return false;
+        }
+        log.debug("Parked {} until {} arrives", message.getId().getValue(), missing.parentKey());
+        if (transitionBuilder.parentExists(missing)) {
+            parkedEvents.release(List.of(missing.parentKey()));
+        }
         return true;
     }
 
-  private Map<String, Object> parseSimpleKeyValueString(String str) {
-        Map<String, Object> map = new java.util.HashMap<>();
-        if (str == null) return map;
-        String cleaned = str.replaceAll("[{}]", "").trim();
-        if (cleaned.isEmpty()) return map;
-        for (String pair : cleaned.split(",")) {
-            String[] kv = pair.split(":", 2);
-            if (kv.length == 2) {
-                map.put(kv[0].trim(), kv[1].trim());
+    /**
+     * Records end-to-end latency, writes through to the in-memory caches and the Redis snapshot, then wakes any children parked on the committed keys.
+     */
+    private void onCommitted(List<OrderStateHistoryEntity> committed) {
+        long now = System.currentTimeMillis();
+        for (OrderStateHistoryEntity row : committed) {
+            if (row.getStreamRecordId() != null) {
+                metrics.committed(row.getStreamRecordId(), now);
             }
         }
-        return map;
+        latestStateCache.recordCommitted(committed);
+        orderStatusCache.recordCommitted(committed);
+        orderStatusSnapshotStore.recordCommitted(committed);
+        statusChangeRelay.publish(committed);
+        releaseChildren(committed);
     }
 
-    private Map<String, Object> parsePayload(Object payloadObj) {
-        if (payloadObj == null) {
-            return null;
-        }
-         Map<String, Object> payloadMap = new java.util.HashMap<>();
-        if (payloadObj instanceof Map) {
-            Map<Object, Object> rawMap = (Map<Object, Object>) payloadObj;
-            for (Map.Entry<Object, Object> entry : rawMap.entrySet()) {
-                payloadMap.put(String.valueOf(entry.getKey()), entry.getValue());
+    private void releaseChildren(List<OrderStateHistoryEntity> committed) {
+        Set<String> parentKeys = new HashSet<>();
+        for (OrderStateHistoryEntity row : committed) {
+            if (row.getFileId() != null) {
+                parentKeys.add(OrderCurrentStateEntity.fileKey(row.getFileId()));
+            }
+            if (row.getOrderId() != null) {
+                parentKeys.add(OrderCurrentStateEntity.orderKey(row.getOrderId()));
             }
-            return payloadMap;
         }
-        String payloadStr = (payloadObj instanceof String)
-            ? (String) payloadObj
-            : payloadObj.toString();
-        ObjectMapper objectMapper = new ObjectMapper();
+        parkedEvents.release(parentKeys);
+    }
+
+    /**
+     * Runs on the parking thread, so blocking on a full lane here does not hold up any lane.
+     */
+    private void replayReleased(List<ParkedEventBuffer.Parked> released) {
+        Map<LaneKey, List<PendingRecord>> byLane = new LinkedHashMap<>();
+        for (ParkedEventBuffer.Parked parked : released) {
+            LaneKey lane = new LaneKey(parked.message().getStream(),
+                    dispatcher.laneFor(partitionKey(parked.message(), parked.event())));
+            byLane.computeIfAbsent(lane, l -> new ArrayList<>())
+                    .add(new PendingRecord(parked.message(), parked.event()));
+        }
         try {
-            payloadMap = objectMapper.readValue(payloadStr, Map.class);
-            return payloadMap;
-        } catch (Exception ex) {
-            System.out.println("JSON parse failed, fallback for: " + payloadStr);
-            Map<String, Object> fallback = parseSimpleKeyValueString(payloadStr);
-            return fallback.isEmpty() ? null : fallback;
+            for (Map.Entry<LaneKey, List<PendingRecord>> lane : byLane.entrySet()) {
+                List<PendingRecord> records = lane.getValue();
+                submit(lane.getKey().stream(), lane.getKey().lane(), records.size(), () -> handleBatchWithAck(records));
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Lanes closed, released records stay pending for redelivery");
         }
     }
 
-    private void validateIdentifiers(String recordId, String sourceService, boolean isTradeCapture,
-            String fileId, String orderId, Integer distributorId) {
-        if (isTradeCapture) {
-            if (fileId == null && orderId == null) {
-                throw new IllegalStateException("trade-capture requires orderId or fileId (" + recordId + ")");
+    private void deadLetterExpired(List<ParkedEventBuffer.Parked> expired) {
+        Map<String, StreamAcknowledger.Batch> byStream = new LinkedHashMap<>();
+        for (ParkedEventBuffer.Parked parked : expired) {
+            StreamAcknowledger.Batch acks = byStream.computeIfAbsent(parked.message().getStream(),
+                    stream -> new StreamAcknowledger.Batch(stream, GROUP_NAME, DLQ_STREAM));
+            moveToDlq(parked.message(), 1, "Parent " + parked.parentKey() + " never arrived", acks);
+        }
+        for (StreamAcknowledger.Batch acks : byStream.values()) {
+            try {
+                acknowledger.flush(acks);
+            } catch (Exception e) {
+                log.error("Failed to dead-letter {} expired parked records: {}", acks.size(), e.getMessage());
             }
-            return;
         }
+    }
 
-        if (orderId == null || distributorId == null) {
-            throw new IllegalStateException("orderId and distributorId are required for service "
-                    + sourceService + " (" + recordId + ")");
-        }
+    private boolean isProcessable(StatusEvent event) {
+        return event != null && event.status() != null && event.sourceService() != null;
+    }
 
-        if (fileId == null) {
-            if (historyDao.findTopByOrderIdOrderByEventTimeDesc(orderId).isEmpty()) {
-                throw new IllegalStateException("orderId " + orderId + " not seen yet from trade-capture ("
-                        + recordId + ")");
+    /**
+     * Blocks the record's key until the retry is over, see {@link #retry}.
+     */
+    private boolean scheduleRetry(MapRecord<String, Object, Object> message, StatusEvent event, int nextAttempt) {
+        if (!running) {
+            return false;
+        }
+        String key = partitionKey(message, event);
+        int lane = dispatcher.laneFor(key);
+        // Counted as lane work from now on; the lane task takes over the count before this one is dropped.
+        AtomicInteger work = laneWork.computeIfAbsent(message.getStream(), s -> new AtomicInteger());
+        work.incrementAndGet();
+        boolean scheduled = retryScheduler.schedule(message.getStream(), message.getId(), nextAttempt, () -> {
+            try {
+                submit(message.getStream(), lane, 1, () -> retry(message, event, nextAttempt));
+            } catch (RejectedExecutionException e) {
+                log.warn("Lanes closed, leaving {} pending for redelivery", message.getId().getValue());
+            } finally {
+                work.decrementAndGet();
             }
-        } else if (!historyDao.existsByFileId(fileId)) {
-            throw new IllegalStateException("fileId " + fileId + " not found yet for order: " + orderId
-                    + " (" + recordId + ")");
+        });
+        if (scheduled) {
+            retryBacklog.block(key);
+        } else {
+            work.decrementAndGet();
         }
+        return scheduled;
     }
 
-    private LocalDateTime extractEventTime(String recordId) {
-        String timestampPart = recordId.split("-")[0];
-        long timestampMillis = Long.parseLong(timestampPart);
-        return Instant.ofEpochMilli(timestampMillis)
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
+    /**
+     * Runs on the record's lane. Unless the record needs yet another retry, its key is unblocked and the
+     * records held behind it are processed right away, still on this lane and in their original order.
+     */
+    private void retry(MapRecord<String, Object, Object> message, StatusEvent event, int attempt) {
+        StreamAcknowledger.Batch acks = new StreamAcknowledger.Batch(message.getStream(), GROUP_NAME, DLQ_STREAM);
+        boolean retrying = handleWithAck(message, event, attempt, acks);
+        if (!acks.isEmpty()) {
+            try {
+                acknowledger.flush(acks);
+            } catch (Exception e) {
+                log.error("Failed to ack retried record {}, it will be redelivered: {}",
+                        message.getId().getValue(), e.getMessage());
+            }
+        }
+        if (!retrying) {
+            releaseHeld(partitionKey(message, event));
+        }
     }
 
-    private String findPreviousState(String fileId, String orderId, Integer distributorId) {
-        Optional<OrderStateHistoryEntity> lastRecord = Optional.empty();
-        if (fileId != null) {
-            lastRecord = historyDao.findTopByFileIdOrderByEventTimeDesc(fileId);
-        } else if (orderId != null && distributorId != null) {
-            lastRecord = historyDao.findTopByOrderIdAndDistributorIdOrderByEventTimeDesc(orderId, distributorId);
-            if (lastRecord.isEmpty()) {
-                lastRecord = historyDao.findTopByOrderIdOrderByEventTimeDesc(orderId);
-            }
-        } else if (orderId != null) {
-            lastRecord = historyDao.findTopByOrderIdOrderByEventTimeDesc(orderId);
+    private void releaseHeld(String key) {
+        List<RetryBacklog.Held> held = retryBacklog.unblock(key);
+        if (held.isEmpty()) {
+            return;
+        }
+        List<PendingRecord> records = new ArrayList<>(held.size());
+        for (RetryBacklog.Held h : held) {
+            records.add(new PendingRecord(h.message(), h.event()));
         }
-        return lastRecord.map(OrderStateHistoryEntity::getCurrentState).orElse(null);
+        log.debug("Releasing {} records held behind {}", records.size(), key);
+        handleBatchWithAck(records);
     }
 
-    private String getStringValue(Map<String, Object> map, String... fieldNames) {
-        if (map == null || fieldNames == null || fieldNames.length == 0) {
-            return null;
+    /**
+     * Queues the DLQ entry on the batch; the XADD, XACK and XDEL go out with the batch's pipeline.
+     * The record body is serialised from the copy already in memory, no XRANGE re-read.
+     */
+    private void moveToDlq(MapRecord<String, Object, Object> message, long attempts, String reason,
+            StreamAcknowledger.Batch acks) {
+        RecordId recordId = message.getId();
+        try {
+            acks.deadLetter(recordId, eventParser.toJson(message.getValue()), attempts, reason);
+            log.warn("Moving record to DLQ after {} attempts: {}", attempts, recordId.getValue());
+        } catch (Exception e) {
+            log.error("Failed to move record to DLQ: {} because {}", recordId.getValue(), e.getMessage());
         }
+    }
 
-        for (String fieldName : fieldNames) {
-            Object value = map.get(fieldName);
-            if (value != null) {
-                String strValue = String.valueOf(value).trim();
-                if (!strValue.isEmpty() && !"null".equalsIgnoreCase(strValue)) {
-                    return strValue;
-                }
+    /**
+     * The id a record was first read under: its own, or for a DLQ replay the one it had before it failed.
+     * History rows are keyed and timed by it, so a replay keeps its event_time and is deduplicated against
+     * a row the original may already have written.
+     */
+    static String originId(MapRecord<String, Object, Object> message) {
+        Object replayedFrom = message.getValue().get(DlqReplayer.REPLAYED_FROM);
+        if (replayedFrom != null) {
+            try {
+                return RecordId.of(replayedFrom.toString()).getValue();
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring malformed {} on {}", DlqReplayer.REPLAYED_FROM, message.getId().getValue());
             }
         }
-        return null;
+        return message.getId().getValue();
     }
 
-    private Integer getIntValue(Map<String, Object> map, String... fieldNames) {
-        String value = getStringValue(map, fieldNames);
-        if (value == null) {
-            return null;
+    private boolean writeToDatabase(MapRecord<String, Object, Object> message, StatusEvent event) throws Exception {
+        OrderStateHistoryEntity entity = transitionBuilder.build(originId(message), event, new HashMap<>());
+        if (entity == null) {
+            return false;
         }
-        try {
-            return Integer.valueOf(value);
-        } catch (NumberFormatException e) {
-            System.err.println("Failed to parse integer from value '" + value + "'");
-            return null;
+        entity.setStreamKey(message.getStream());
+
+        long insertStart = System.nanoTime();
+        List<OrderStateHistoryEntity> inserted = batchWriter.writeBatch(List.of(entity));
+        metrics.insertSince(insertStart);
+        if (inserted.isEmpty()) {
+            metrics.duplicates(1);
+            log.debug("Record {} was already written", message.getId().getValue());
+            return true;
         }
+        onCommitted(inserted);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Saved to DB: fileId={} orderId={} [distributor={}] : {} -> {} (source: {})",
+                    entity.getFileId(), entity.getOrderId(), entity.getDistributorId(),
+                    entity.getPreviousState(), entity.getCurrentState(), entity.getSourceService());
+        }
+
+        return true;
+    }
+
+    private record PendingRecord(MapRecord<String, Object, Object> message, StatusEvent event) {
+    }
+
+    private record LaneKey(String stream, int lane) {
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.example.status.service;
+
+import com.example.status.dao.StatusDictionary;
+import com.example.status.dao.VocabularyFullException;
+import com.example.status.dto.StatusEvent;
+import com.example.status.entity.OrderStateHistoryEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.example.status.entity.OrderCurrentStateEntity.fileKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderDistributorKey;
+import static com.example.status.entity.OrderCurrentStateEntity.orderKey;
+
+/**
+ * Turns a parsed {@link StatusEvent} into the order_state_history row to insert: checks the
+ * identifiers each source service must send, confirms the trade-capture parent exists and
+ * resolves previous_state. Kept free of Redis so the per-record cost can be benchmarked alone.
+ * States and source services are interned through the {@link StatusDictionary}, so rows, the batch state
+ * map and the latest-state cache all share one String per name instead of a copy per record.
+ */
+@Component
+public class StatusTransitionBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusTransitionBuilder.class);
+
+    private final LatestStateCache latestStateCache;
+    private final PipelineMetrics metrics;
+    private final StatusDictionary dictionary;
+
+    public StatusTransitionBuilder(LatestStateCache latestStateCache, PipelineMetrics metrics,
+            StatusDictionary dictionary) {
+        this.latestStateCache = latestStateCache;
+        this.metrics = metrics;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Validates a payload and resolves its previous state. {@code batchStates} carries the states of
+     * rows built earlier in the same, not yet committed, batch; they take precedence over the database.
+     * Returns null when the payload is unusable.
+     */
+    public OrderStateHistoryEntity build(String recordId, StatusEvent event,
+            Map<String, String> batchStates) {
+        if (event == null) {
+            log.warn("Payload missing or invalid for record: {}", recordId);
+            return null;
+        }
+
+        String sourceService = event.sourceService();
+        String status = event.status();
+        String fileId = event.fileId();
+        String orderId = event.orderId();
+        Integer distributorId = event.distributorId();
+
+        if (status == null || sourceService == null) {
+            log.warn("Missing status/sourceService for record: {}", recordId);
+            return null;
+        }
+
+        boolean isTradeCapture = event.isTradeCapture();
+        long start = System.nanoTime();
+        try {
+            validateIdentifiers(recordId, sourceService, isTradeCapture, fileId, orderId, distributorId, batchStates);
+        } finally {
+            metrics.validateSince(start);
+        }
+
+        try {
+            status = dictionary.states().intern(status);
+            sourceService = dictionary.sourceServices().intern(sourceService);
+        } catch (VocabularyFullException e) {
+            throw new InvalidEventException(e.getMessage() + " (" + recordId + ")");
+        }
+        LocalDateTime eventTime = extractEventTime(recordId);
+        start = System.nanoTime();
+        String previousState = findPreviousState(fileId, orderId, distributorId, batchStates);
+        metrics.lookupSince(start);
+
+        OrderStateHistoryEntity entity = new OrderStateHistoryEntity();
+        entity.setStreamRecordId(recordId);
+        entity.setFileId(fileId);
+        entity.setOrderId(orderId);
+        entity.setDistributorId(distributorId);
+        entity.setPreviousState(previousState);
+        entity.setCurrentState(status);
+        entity.setSourceService(sourceService);
+        entity.setEventTime(eventTime);
+
+        if (fileId != null) {
+            batchStates.put(fileKey(fileId), status);
+        }
+        if (orderId != null) {
+            batchStates.put(orderKey(orderId), status);
+            if (distributorId != null) {
+                batchStates.put(orderDistributorKey(orderId, distributorId), status);
+            }
+        }
+        return entity;
+    }
+
+    public void validateIdentifiers(String recordId, String sourceService, boolean isTradeCapture,
+            String fileId, String orderId, Integer distributorId, Map<String, String> batchStates) {
+        if (isTradeCapture) {
+            if (fileId == null && orderId == null) {
+                throw new InvalidEventException("trade-capture requires orderId or fileId (" + recordId + ")");
+            }
+            return;
+        }
+
+        if (orderId == null || distributorId == null) {
+            throw new InvalidEventException("orderId and distributorId are required for service "
+                    + sourceService + " (" + recordId + ")");
+        }
+
+        if (fileId == null) {
+            if (!batchStates.containsKey(orderKey(orderId)) && !latestStateCache.orderExists(orderId)) {
+                throw MissingParentException.missingOrder(orderId, recordId);
+            }
+        } else if (!batchStates.containsKey(fileKey(fileId)) && !latestStateCache.fileExists(fileId)) {
+            throw MissingParentException.missingFile(fileId, orderId, recordId);
+        }
+    }
+
+    /**
+     * Whether the parent a {@link MissingParentException} was waiting for has been committed since.
+     */
+    public boolean parentExists(MissingParentException missing) {
+        return missing.getFileId() != null
+                ? latestStateCache.fileExists(missing.getFileId())
+                : latestStateCache.orderExists(missing.getOrderId());
+    }
+
+    public static LocalDateTime extractEventTime(String recordId) {
+        String timestampPart = recordId.split("-")[0];
+        long timestampMillis = Long.parseLong(timestampPart);
+        return Instant.ofEpochMilli(timestampMillis)
+                .atZone(ZoneId.systemDefault())
+                .toLocalDateTime();
+    }
+
+    private String findPreviousState(String fileId, String orderId, Integer distributorId,
+            Map<String, String> batchStates) {
+        if (fileId != null) {
+            return latestState(batchStates, fileKey(fileId),
+                    () -> latestStateCache.latestForFile(fileId));
+        } else if (orderId != null && distributorId != null) {
+            String state = latestState(batchStates, orderDistributorKey(orderId, distributorId),
+                    () -> latestStateCache.latestForOrderAndDistributor(orderId, distributorId));
+            if (state == null) {
+                state = latestState(batchStates, orderKey(orderId),
+                        () -> latestStateCache.latestForOrder(orderId));
+            }
+            return state;
+        } else if (orderId != null) {
+            return latestState(batchStates, orderKey(orderId),
+                    () -> latestStateCache.latestForOrder(orderId));
+        }
+        return null;
+    }
+
+    private String latestState(Map<String, String> batchStates, String key, Supplier<String> committed) {
+        String pending = batchStates.get(key);
+        return pending != null ? pending : committed.get();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.status.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Final Redis step for a batch of processed records. Completed and dead-lettered ids are collected
+ * in a {@link Batch} and sent as one pipeline: one script call per DLQ record, a single multi-id XACK
+ * and a single multi-id XDEL for the completed ones, i.e. one network round trip per batch instead of
+ * two or more per record. Each script adds the DLQ copy and only then acknowledges and deletes the
+ * source entry, atomically, so a failed XADD leaves the record pending instead of losing it.
+ * The DLQ is capped with {@code XADD MAXLEN ~}.
+ */
+@Component
+public class StreamAcknowledger {
+
+    // KEYS: source stream, DLQ stream. ARGV: max length (0 = uncapped), group, record id, then field/value pairs.
+    private static final byte[] DEAD_LETTER = ("""
+            if tonumber(ARGV[1]) > 0 then
+              redis.call('XADD', KEYS[2], 'MAXLEN', '~', ARGV[1], '*', unpack(ARGV, 4))
+            else
+              redis.call('XADD', KEYS[2], '*', unpack(ARGV, 4))
+            end
+            redis.call('XACK', KEYS[1], ARGV[2], ARGV[3])
+            redis.call('XDEL', KEYS[1], ARGV[3])
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long dlqMaxLength;
+    private final PipelineMetrics metrics;
+
+    public StreamAcknowledger(StringRedisTemplate redisTemplate,
+            @Value("${app.redis.dlq-max-length:1000000}") long dlqMaxLength, PipelineMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.metrics = metrics;
+        this.dlqMaxLength = Math.max(0, dlqMaxLength);
+    }
+
+    /**
+     * Throws when any command in the pipeline failed. Records whose script or XACK did not go through
+     * stay pending and are redelivered; the ones that did are not affected.
+     */
+    public void flush(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        RecordId[] completed = batch.completed.toArray(new RecordId[0]);
+        byte[] streamKey = bytes(batch.streamKey);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (DeadLetter deadLetter : batch.deadLetters) {
+                connection.scriptingCommands().eval(DEAD_LETTER, ReturnType.INTEGER, 2,
+                        deadLetterArgs(batch, deadLetter));
+            }
+            if (completed.length > 0) {
+                connection.streamCommands().xAck(streamKey, batch.group, completed);
+                connection.streamCommands().xDel(streamKey, completed);
+            }
+            return null;
+        });
+        metrics.ackSince(start);
+        metrics.acked(completed.length, batch.deadLetters.size());
+    }
+
+    private byte[][] deadLetterArgs(Batch batch, DeadLetter deadLetter) {
+        byte[][] keysAndArgs = new byte[5 + deadLetter.entry().size() * 2][];
+        keysAndArgs[0] = bytes(batch.streamKey);
+        keysAndArgs[1] = bytes(batch.dlqStream);
+        keysAndArgs[2] = bytes(Long.toString(dlqMaxLength));
+        keysAndArgs[3] = bytes(batch.group);
+        keysAndArgs[4] = bytes(deadLetter.id().getValue());
+        int i = 5;
+        for (Map.Entry<String, String> field : deadLetter.entry().entrySet()) {
+            keysAndArgs[i++] = bytes(field.getKey());
+            keysAndArgs[i++] = bytes(field.getValue());
+        }
+        return keysAndArgs;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record DeadLetter(RecordId id, Map<String, String> entry) {
+    }
+
+    /**
+     * Ids to acknowledge and delete from one stream, plus DLQ entries to add first.
+     * Not thread-safe; each lane fills its own batch.
+     */
+    public static class Batch {
+
+        private final String streamKey;
+        private final String group;
+        private final String dlqStream;
+        private final List<RecordId> completed = new ArrayList<>();
+        private final List<DeadLetter> deadLetters = new ArrayList<>();
+
+        public Batch(String streamKey, String group, String dlqStream) {
+            this.streamKey = streamKey;
+            this.group = group;
+            this.dlqStream = dlqStream;
+        }
+
+        public void complete(RecordId id) {
+            completed.add(id);
+        }
+
+        public void complete(List<RecordId> ids) {
+            completed.addAll(ids);
+        }
+
+        /**
+         * The record is acknowledged and deleted from the source stream once the DLQ entry is written.
+         */
+        public void deadLetter(RecordId id, String streamPayload, long attempts, String reason) {
+            Map<String, String> dlqEntry = new LinkedHashMap<>();
+            dlqEntry.put("failed_record_id", id.getValue());
+            dlqEntry.put("reason", reason == null ? "" : reason);
+            dlqEntry.put("attempts", String.valueOf(attempts));
+            dlqEntry.put("stream_payload", streamPayload);
+            dlqEntry.put("source_stream", streamKey);
+            deadLetters.add(new DeadLetter(id, dlqEntry));
+        }
+
+        public boolean isEmpty() {
+            return completed.isEmpty() && deadLetters.isEmpty();
+        }
+
+        public int size() {
+            return completed.size() + deadLetters.size();
+        }
+
+        public int deadLetterCount() {
+            return deadLetters.size();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples XINFO GROUPS for every shard and publishes the group's backlog as gauges:
+ * {@code status.stream.lag{stream}} (entries not yet delivered to the group, Redis 7+) and
+ * {@code status.stream.pending{stream}} (delivered but not acknowledged). Sampled on a schedule rather
+ * than on scrape so a slow Redis cannot stall the metrics endpoint. A value of -1 means unknown.
+ */
+@Component
+public class StreamLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamLagMonitor.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ConsumerMembership membership;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> lag = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.redis.group}")
+    private String GROUP_NAME;
+
+    public StreamLagMonitor(StringRedisTemplate redisTemplate, ConsumerMembership membership,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.membership = membership;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.lag-sample-interval-ms:10000}")
+    public void sample() {
+        for (String stream : membership.allStreams()) {
+            try {
+                StreamInfo.XInfoGroups groups = redisTemplate.opsForStream().groups(stream);
+                if (groups == null) {
+                    continue;
+                }
+                for (StreamInfo.XInfoGroup group : groups) {
+                    if (GROUP_NAME.equals(group.groupName())) {
+                        gauge(lag, "status.stream.lag", stream).set(asLong(group.getRaw().get("lag")));
+                        gauge(pending, "status.stream.pending", stream).set(
+                                group.pendingCount() != null ? group.pendingCount() : -1);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to sample lag of {}: {}", stream, e.getMessage());
+            }
+        }
+    }
+
+    private AtomicLong gauge(Map<String, AtomicLong> values, String name, String stream) {
+        return values.computeIfAbsent(stream, s -> {
+            AtomicLong value = new AtomicLong(-1);
+            Gauge.builder(name, value, AtomicLong::get)
+                    .tag("stream", s)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private static long asLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
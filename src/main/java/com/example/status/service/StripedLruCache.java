@@ -0,0 +1,99 @@
+package com.example.status.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Bounded LRU map split into independently locked segments by key hash, so lanes and API threads
+ * working on different keys rarely wait for each other. Each segment evicts its own least recently used
+ * entry once it holds its share of {@code maxEntries}; small caches use a single segment and are exact LRU.
+ */
+final class StripedLruCache<V> {
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_ENTRIES_PER_STRIPE = 1024;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    StripedLruCache(int maxEntries) {
+        int stripes = 1;
+        while (stripes < MAX_STRIPES && (long) stripes * 2 * MIN_ENTRIES_PER_STRIPE <= maxEntries) {
+            stripes *= 2;
+        }
+        this.segments = new Segment[stripes];
+        int perStripe = (maxEntries + stripes - 1) / stripes;
+        for (int i = 0; i < stripes; i++) {
+            segments[i] = new Segment<>(perStripe);
+        }
+    }
+
+    V get(String key) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Stores {@code value} unless {@code keepExisting} says the entry already there should stay.
+     */
+    void put(String key, V value, BiPredicate<V, V> keepExisting) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            V existing = segment.get(key);
+            if (existing == null || !keepExisting.test(existing, value)) {
+                segment.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry only while it is still {@code expected}, so a concurrent put is not lost.
+     */
+    void remove(String key, V expected) {
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key, expected);
+        }
+    }
+
+    void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<V> segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class Segment<V> extends LinkedHashMap<String, V> {
+
+        private final int maxEntries;
+
+        private Segment(int maxEntries) {
+            super(256, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
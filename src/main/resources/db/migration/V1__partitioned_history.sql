@@ -0,0 +1,91 @@
+-- Databases from before Flyway still have the tables Hibernate created (ddl-auto); Flyway baselines them
+-- at version 0 (spring.flyway.baseline-on-migrate). Their history rows are moved into the partitioned
+-- table below, and order_current_state is rebuilt from that history.
+ALTER TABLE IF EXISTS order_state_history RENAME TO order_state_history_legacy;
+DROP TABLE IF EXISTS order_current_state;
+
+-- History is range-partitioned by month on event_time. The primary key has to include the
+-- partition column; id alone stays unique because it comes from one sequence.
+CREATE TABLE order_state_history (
+    id              BIGSERIAL,
+    file_id         VARCHAR(255),
+    order_id        VARCHAR(255),
+    distributor_id  INTEGER,
+    previous_state  VARCHAR(255),
+    current_state   VARCHAR(255) NOT NULL,
+    source_service  VARCHAR(255),
+    event_time      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, event_time)
+) PARTITION BY RANGE (event_time);
+
+-- Catches rows outside every monthly partition (very old or far-future event times).
+-- HistoryPartitionMaintenance keeps partitions created ahead, so this should stay empty.
+CREATE TABLE order_state_history_default PARTITION OF order_state_history DEFAULT;
+
+-- This month and the next three exist from the start; the maintenance job keeps extending that.
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', now())::date;
+BEGIN
+    FOR i IN 0..3 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF order_state_history FOR VALUES FROM (%L) TO (%L)',
+                       'order_state_history_p' || to_char(month_start + make_interval(months => i), 'YYYYMM'),
+                       month_start + make_interval(months => i),
+                       month_start + make_interval(months => i + 1));
+    END LOOP;
+END $$;
+
+-- Legacy rows keep their ids; their months get partitions of their own (old ones are then archived by
+-- the retention job), and the id sequence continues after the highest legacy id.
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    IF to_regclass('order_state_history_legacy') IS NULL THEN
+        RETURN;
+    END IF;
+    FOR month_start IN SELECT DISTINCT date_trunc('month', event_time)::date FROM order_state_history_legacy LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF order_state_history FOR VALUES FROM (%L) TO (%L)',
+                       'order_state_history_p' || to_char(month_start, 'YYYYMM'),
+                       month_start,
+                       month_start + make_interval(months => 1));
+    END LOOP;
+    INSERT INTO order_state_history (id, file_id, order_id, distributor_id, previous_state, current_state,
+                                     source_service, event_time)
+    SELECT id, file_id, order_id, distributor_id, previous_state, current_state, source_service, event_time
+    FROM order_state_history_legacy;
+    PERFORM setval(pg_get_serial_sequence('order_state_history', 'id'),
+                   (SELECT coalesce(max(id), 0) + 1 FROM order_state_history_legacy), false);
+    DROP TABLE order_state_history_legacy;
+END $$;
+
+CREATE INDEX idx_osh_order_event_time_id ON order_state_history (order_id, event_time, id);
+CREATE INDEX idx_osh_file_event_time_id ON order_state_history (file_id, event_time, id);
+CREATE INDEX idx_osh_order_distributor_event_time ON order_state_history (order_id, distributor_id, event_time);
+
+CREATE TABLE order_current_state (
+    state_key       VARCHAR(255) PRIMARY KEY,
+    file_id         VARCHAR(255),
+    order_id        VARCHAR(255),
+    distributor_id  INTEGER,
+    previous_state  VARCHAR(255),
+    current_state   VARCHAR(255) NOT NULL,
+    source_service  VARCHAR(255),
+    event_time      TIMESTAMP(6) NOT NULL
+);
+
+-- The latest history row per key, keyed like OrderStateHistoryBatchWriter does (file|F, order|O, order|O|D).
+INSERT INTO order_current_state (state_key, file_id, order_id, distributor_id, previous_state, current_state,
+                                 source_service, event_time)
+SELECT DISTINCT ON (k.state_key)
+       k.state_key, h.file_id, h.order_id, h.distributor_id, h.previous_state, h.current_state,
+       h.source_service, h.event_time
+FROM order_state_history h
+CROSS JOIN LATERAL (VALUES
+    (CASE WHEN h.file_id IS NOT NULL THEN 'file|' || h.file_id END),
+    (CASE WHEN h.order_id IS NOT NULL THEN 'order|' || h.order_id END),
+    (CASE WHEN h.order_id IS NOT NULL AND h.distributor_id IS NOT NULL
+          THEN 'order|' || h.order_id || '|' || h.distributor_id END)
+) AS k(state_key)
+WHERE k.state_key IS NOT NULL
+ORDER BY k.state_key, h.event_time DESC, h.id DESC;
@@ -0,0 +1,8 @@
+-- Idempotent inserts: each stream entry maps to at most one history row. Unique indexes on a
+-- partitioned table must contain the partition column; event_time is derived from the entry id's
+-- timestamp, so including it does not weaken the constraint.
+ALTER TABLE order_state_history
+    ADD COLUMN stream_key       VARCHAR(255),
+    ADD COLUMN stream_record_id VARCHAR(64);
+
+CREATE UNIQUE INDEX uq_osh_stream_record ON order_state_history (stream_record_id, stream_key, event_time);
@@ -0,0 +1,66 @@
+-- States and source services repeat a small vocabulary across every row, so both tables store SMALLINT
+-- codes into append-only lookup tables instead of the text. Codes are never renumbered or reused, which
+-- keeps archived partitions decodable against these tables.
+CREATE TABLE status_state (
+    code SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE status_source_service (
+    code SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+INSERT INTO status_state (name)
+SELECT name FROM (
+    SELECT previous_state AS name FROM order_state_history
+    UNION SELECT current_state FROM order_state_history
+    UNION SELECT previous_state FROM order_current_state
+    UNION SELECT current_state FROM order_current_state
+) states
+WHERE name IS NOT NULL
+ORDER BY name;
+
+INSERT INTO status_source_service (name)
+SELECT name FROM (
+    SELECT source_service AS name FROM order_state_history
+    UNION SELECT source_service FROM order_current_state
+) services
+WHERE name IS NOT NULL
+ORDER BY name;
+
+-- DROP COLUMN frees no disk: it only hides the text columns, and existing rows keep those bytes (the UPDATE
+-- even writes a second version of each, which vacuum reclaims for reuse). Only rows written from here on are
+-- smaller; the space of existing ones comes back when a table or partition is rewritten (VACUUM FULL,
+-- pg_repack) or when its partition is archived by the retention job.
+ALTER TABLE order_state_history
+    ADD COLUMN previous_state_code SMALLINT REFERENCES status_state (code),
+    ADD COLUMN current_state_code  SMALLINT REFERENCES status_state (code),
+    ADD COLUMN source_service_code SMALLINT REFERENCES status_source_service (code);
+
+UPDATE order_state_history h SET
+    previous_state_code = (SELECT code FROM status_state WHERE name = h.previous_state),
+    current_state_code  = (SELECT code FROM status_state WHERE name = h.current_state),
+    source_service_code = (SELECT code FROM status_source_service WHERE name = h.source_service);
+
+ALTER TABLE order_state_history
+    ALTER COLUMN current_state_code SET NOT NULL,
+    DROP COLUMN previous_state,
+    DROP COLUMN current_state,
+    DROP COLUMN source_service;
+
+ALTER TABLE order_current_state
+    ADD COLUMN previous_state_code SMALLINT REFERENCES status_state (code),
+    ADD COLUMN current_state_code  SMALLINT REFERENCES status_state (code),
+    ADD COLUMN source_service_code SMALLINT REFERENCES status_source_service (code);
+
+UPDATE order_current_state c SET
+    previous_state_code = (SELECT code FROM status_state WHERE name = c.previous_state),
+    current_state_code  = (SELECT code FROM status_state WHERE name = c.current_state),
+    source_service_code = (SELECT code FROM status_source_service WHERE name = c.source_service);
+
+ALTER TABLE order_current_state
+    ALTER COLUMN current_state_code SET NOT NULL,
+    DROP COLUMN previous_state,
+    DROP COLUMN current_state,
+    DROP COLUMN source_service;
@@ -1,6 +1,10 @@
 package com.example.status;
 
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.dao.OrderStateHistoryBatchWriter;
 import com.example.status.dao.OrderStateHistoryDao;
+import com.example.status.dao.StatusDictionary;
+import com.example.status.service.HistoryPartitionMaintenance;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -16,13 +20,26 @@ import org.springframework.test.context.TestPropertySource;
     "spring.data.redis.port=6379",
     "app.redis.stream=test-stream",
     "app.redis.group=test-group",
-    "app.redis.consumer=test-consumer"
+    "app.redis.consumer=test-consumer",
+    "app.datasource.read-write-split=false"
 })
 class StatusApplicationTests {
 
     @MockBean
     private OrderStateHistoryDao historyDao;
 
+    @MockBean
+    private OrderStateHistoryBatchWriter batchWriter;
+
+    @MockBean
+    private OrderCurrentStateDao currentStateDao;
+
+    @MockBean
+    private StatusDictionary statusDictionary;
+
+    @MockBean
+    private HistoryPartitionMaintenance partitionMaintenance;
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,53 @@
+package com.example.status.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DataSourceConfigTest {
+
+    private final DataSource writePool = mock(DataSource.class);
+    private final DataSource readPool = mock(DataSource.class);
+    private final Connection writeConnection = mock(Connection.class);
+    private final Connection readConnection = mock(Connection.class);
+
+    @Test
+    void testReadOnlyTransactionsUseTheReadPoolAndEverythingElseTheWritePool() throws Exception {
+        when(writePool.getConnection()).thenReturn(writeConnection);
+        when(readPool.getConnection()).thenReturn(readConnection);
+        Statement writeStatement = statementOn(writeConnection);
+        Statement readStatement = statementOn(readConnection);
+        DataSource dataSource = new DataSourceConfig().dataSource(writePool, readPool);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        readOnly.executeWithoutResult(status -> jdbcTemplate.execute("SELECT 'api'"));
+        readWrite.executeWithoutResult(status -> jdbcTemplate.execute("SELECT 'consumer'"));
+        jdbcTemplate.execute("SELECT 'autocommit'");
+
+        verify(readPool, times(1)).getConnection();
+        verify(readStatement).execute("SELECT 'api'");
+        verify(writeStatement).execute("SELECT 'consumer'");
+        verify(writeStatement).execute("SELECT 'autocommit'");
+        verify(writeStatement, never()).execute("SELECT 'api'");
+    }
+
+    private static Statement statementOn(Connection connection) throws Exception {
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        lenient().when(statement.execute(anyString())).thenReturn(true);
+        return statement;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.status.controller;
+
+import com.example.status.dto.DlqReplayRequest;
+import com.example.status.dto.DlqReplayStatus;
+import com.example.status.service.DlqReplayer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DlqReplayController.class)
+@TestPropertySource(properties = "app.api.admin-token=s3cret")
+class DlqReplayControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DlqReplayer dlqReplayer;
+
+    @Test
+    void testCallsWithoutTheAdminTokenAreRefused() throws Exception {
+        mockMvc.perform(post("/api/admin/dlq/replay").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/dlq/replay").header(DlqReplayController.TOKEN_HEADER, "guess"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/dlq/replay"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/admin/dlq/replay"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(dlqReplayer);
+    }
+
+    @Test
+    void testStartsAReplayWithTheTokenAndReportsAConflictWhileOneRuns() throws Exception {
+        DlqReplayRequest request = new DlqReplayRequest(null, null, null, null, null, null);
+        DlqReplayStatus running = new DlqReplayStatus("PENDING", request, 0, 0, 0, null, Instant.now(), null, null);
+        when(dlqReplayer.start(any())).thenReturn(running).thenReturn(null);
+
+        mockMvc.perform(post("/api/admin/dlq/replay").header(DlqReplayController.TOKEN_HEADER, "s3cret"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("PENDING"));
+        mockMvc.perform(post("/api/admin/dlq/replay").header(DlqReplayController.TOKEN_HEADER, "s3cret"))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.status.controller;
+
+import com.example.status.dto.OrderHistoryEntry;
+import com.example.status.dto.OrderHistoryPage;
+import com.example.status.dto.OrderStatusBatchResponse;
+import com.example.status.dto.OrderStatusView;
+import com.example.status.service.OrderStatusService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(OrderStatusController.class)
+class OrderStatusControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OrderStatusService orderStatusService;
+
+    private final OrderStatusView status = new OrderStatusView("ORDER1", "FILE1", 42, "RECEIVED", "PROCESSING",
+            "order-service", LocalDateTime.of(2024, 1, 1, 12, 0));
+
+    @Test
+    void testGetStatus_ReturnsEtagAndNotModifiedWhenUnchanged() throws Exception {
+        when(orderStatusService.getLatestOrderStatus("ORDER1")).thenReturn(Optional.of(status));
+
+        mockMvc.perform(get("/api/orders/ORDER1/status"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, status.etag()))
+                .andExpect(jsonPath("$.currentState").value("PROCESSING"))
+                .andExpect(jsonPath("$.stateKey").doesNotExist());
+
+        mockMvc.perform(get("/api/orders/ORDER1/status").header(HttpHeaders.IF_NONE_MATCH, status.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testBatch_ReturnsFoundAndMissingAndHonoursIfNoneMatch() throws Exception {
+        OrderStatusBatchResponse response = new OrderStatusBatchResponse(List.of(status), List.of("ORDER2"));
+        when(orderStatusService.getLatestOrderStatuses(List.of("ORDER1", "ORDER2"))).thenReturn(response);
+        String body = "{\"orderIds\":[\"ORDER1\",\"ORDER2\"]}";
+
+        mockMvc.perform(post("/api/orders/status:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statuses[0].orderId").value("ORDER1"))
+                .andExpect(jsonPath("$.notFound[0]").value("ORDER2"));
+
+        mockMvc.perform(post("/api/orders/status:batch").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_NONE_MATCH, response.etag()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testBatch_RejectsEmptyRequest() throws Exception {
+        mockMvc.perform(post("/api/orders/status:batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderIds\":[]}"))
+                .andExpect(status().isBadRequest());
+        verify(orderStatusService, never()).getLatestOrderStatuses(any());
+    }
+
+    @Test
+    void testHistory_ReturnsPageOrStreamsNdjson() throws Exception {
+        OrderHistoryEntry entry = new OrderHistoryEntry(7L, "ORDER1", "FILE1", 42, "RECEIVED", "PROCESSING",
+                "order-service", LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(orderStatusService.getOrderHistory("ORDER1", null, 1)).thenReturn(new OrderHistoryPage(List.of(entry), "next"));
+        when(orderStatusService.getOrderHistory("ORDER1", "bogus", 100)).thenThrow(new IllegalArgumentException("bad"));
+        doAnswer(invocation -> {
+            Consumer<OrderHistoryEntry> sink = invocation.getArgument(1);
+            sink.accept(entry);
+            sink.accept(entry);
+            return null;
+        }).when(orderStatusService).exportOrderHistory(eq("ORDER1"), any());
+
+        mockMvc.perform(get("/api/orders/ORDER1/history").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        mockMvc.perform(get("/api/orders/ORDER1/history").param("cursor", "bogus"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult export = mockMvc.perform(get("/api/orders/ORDER1/history").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, body.lines().filter(l -> l.contains("\"currentState\":\"PROCESSING\"")).count());
+    }
+}
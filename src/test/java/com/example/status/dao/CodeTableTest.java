@@ -0,0 +1,89 @@
+package com.example.status.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeTableTest {
+
+    /**
+     * Stands in for one lookup table shared by several instances.
+     */
+    private static final class SharedStore implements CodeTable.Store {
+
+        private final Map<String, Short> rows = new ConcurrentHashMap<>();
+        private final AtomicInteger next = new AtomicInteger(1);
+        private final AtomicInteger loads = new AtomicInteger();
+        private final AtomicInteger adds = new AtomicInteger();
+
+        @Override
+        public Map<String, Short> loadAll() {
+            loads.incrementAndGet();
+            return Map.copyOf(rows);
+        }
+
+        @Override
+        public void add(String name) {
+            adds.incrementAndGet();
+            rows.computeIfAbsent(name, n -> (short) next.getAndIncrement());
+        }
+    }
+
+    private final SharedStore store = new SharedStore();
+
+    @Test
+    void testInterningHandsOutOneInstanceAndCodePerName() {
+        CodeTable table = new CodeTable("state", store, 10);
+
+        String first = table.intern(new String("RECEIVED"));
+        String second = table.intern(new String("RECEIVED"));
+
+        assertSame(first, second);
+        assertEquals(table.code("RECEIVED"), table.code(new String("RECEIVED")));
+        assertNull(table.intern(null));
+        assertEquals(1, store.adds.get());
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testKnownNamesAreServedWithoutReloading() {
+        CodeTable table = new CodeTable("state", store, 10);
+        short code = table.code("RECEIVED");
+        int loads = store.loads.get();
+
+        assertEquals(code, table.code("RECEIVED"));
+        assertEquals("RECEIVED", table.name(code));
+        assertEquals(loads, store.loads.get());
+    }
+
+    @Test
+    void testNewNamesAreRejectedAtMaxEntries() {
+        CodeTable table = new CodeTable("state", store, 2);
+        short received = table.code("RECEIVED");
+        table.code("PROCESSING");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> table.code("FAILED"));
+
+        assertTrue(e.getMessage().contains("FAILED"));
+        assertFalse(store.rows.containsKey("FAILED"));
+        assertEquals(received, table.code("RECEIVED"));
+    }
+
+    @Test
+    void testUnknownCodeReloadsWhatAnotherInstanceAdded() {
+        CodeTable ours = new CodeTable("state", store, 10);
+        CodeTable theirs = new CodeTable("state", store, 10);
+        ours.code("RECEIVED");
+
+        short added = theirs.code("SETTLED");
+
+        assertEquals("SETTLED", ours.name(added));
+        assertEquals(added, ours.code("SETTLED"));
+        assertEquals(2, store.adds.get());
+        assertThrows(IllegalStateException.class, () -> ours.name((short) 99));
+    }
+}
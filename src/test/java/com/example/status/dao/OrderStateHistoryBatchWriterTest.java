@@ -0,0 +1,161 @@
+package com.example.status.dao;
+
+import com.example.status.entity.OrderStateHistoryEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStateHistoryBatchWriterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement insert;
+    @Mock
+    private PreparedStatement upsert;
+    @Mock
+    private ResultSet returned;
+
+    private final StatusDictionary dictionary = StatusDictionary.inMemory();
+    private final List<Object[]> arrays = new ArrayList<>();
+    private OrderStateHistoryBatchWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(startsWith("INSERT INTO order_state_history"))).thenReturn(insert);
+        when(connection.createArrayOf(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            arrays.add(new Object[]{invocation.getArgument(0), invocation.getArgument(1)});
+            return mock(Array.class);
+        });
+        when(insert.executeQuery()).thenReturn(returned);
+        writer = new OrderStateHistoryBatchWriter(new JdbcTemplate(dataSource), dictionary);
+    }
+
+    @Test
+    void testBindsOneArrayPerColumn() throws Exception {
+        prepareUpsert();
+        returnEntries("1-0", "1-1");
+
+        writer.writeBatch(List.of(
+                row("1-0", "FILE1", null, null, null, "RECEIVED", T0),
+                row("1-1", "FILE1", "ORDER1", 42, "RECEIVED", "PROCESSING", T0.plusSeconds(1))));
+
+        verify(connection).prepareStatement(contains("SELECT * FROM unnest("));
+        verify(connection).prepareStatement(contains("ON CONFLICT DO NOTHING RETURNING stream_key, stream_record_id"));
+        assertEquals(9, arrays.size());
+        assertArray(0, "varchar", "stream", "stream");
+        assertArray(1, "varchar", "1-0", "1-1");
+        assertArray(2, "varchar", "FILE1", "FILE1");
+        assertArray(3, "varchar", null, "ORDER1");
+        assertArray(4, "integer", null, 42);
+        assertArray(5, "smallint", null, dictionary.states().code("RECEIVED"));
+        assertArray(6, "smallint", dictionary.states().code("RECEIVED"), dictionary.states().code("PROCESSING"));
+        assertArray(7, "smallint", dictionary.sourceServices().code("svc"), dictionary.sourceServices().code("svc"));
+        assertArray(8, "timestamp", Timestamp.valueOf(T0), Timestamp.valueOf(T0.plusSeconds(1)));
+    }
+
+    @Test
+    void testOnlyReturnedRowsAreReportedAndUpsert() throws Exception {
+        prepareUpsert();
+        returnEntries("1-1");
+        OrderStateHistoryEntity duplicate = row("1-0", "FILE1", "ORDER1", null, null, "RECEIVED", T0);
+        OrderStateHistoryEntity fresh = row("1-1", "FILE1", "ORDER1", null, "RECEIVED", "PROCESSING", T0.plusSeconds(1));
+
+        List<OrderStateHistoryEntity> inserted = writer.writeBatch(List.of(duplicate, fresh));
+
+        assertEquals(List.of(fresh), inserted);
+        verify(upsert).setString(1, "file|FILE1");
+        verify(upsert).setString(1, "order|ORDER1");
+        verify(upsert, times(2)).setShort(6, dictionary.states().code("PROCESSING"));
+        verify(upsert, never()).setShort(6, dictionary.states().code("RECEIVED"));
+        verify(upsert, times(2)).executeUpdate();
+    }
+
+    @Test
+    void testUpsertKeepsTheLatestRowPerKeyAndIsGuardedByEventTime() throws Exception {
+        prepareUpsert();
+        returnEntries("1-0", "1-1");
+
+        writer.writeBatch(List.of(
+                row("1-0", null, "ORDER1", 42, null, "RECEIVED", T0),
+                row("1-1", null, "ORDER1", 42, "RECEIVED", "PROCESSING", T0.plusSeconds(1))));
+
+        verify(connection).prepareStatement(contains("ON CONFLICT (state_key) DO UPDATE SET"));
+        verify(connection).prepareStatement(endsWith("WHERE order_current_state.event_time <= EXCLUDED.event_time"));
+        InOrder order = inOrder(upsert);
+        order.verify(upsert).setString(1, "order|ORDER1");
+        order.verify(upsert).setString(1, "order|ORDER1|42");
+        verify(upsert, times(2)).setShort(6, dictionary.states().code("PROCESSING"));
+        verify(upsert, times(2)).setTimestamp(8, Timestamp.valueOf(T0.plusSeconds(1)));
+        verify(upsert, times(2)).executeUpdate();
+    }
+
+    @Test
+    void testAllDuplicatesSkipTheUpsert() throws Exception {
+        returnEntries();
+
+        List<OrderStateHistoryEntity> inserted = writer.writeBatch(
+                List.of(row("1-0", "FILE1", null, null, null, "RECEIVED", T0)));
+
+        assertTrue(inserted.isEmpty());
+        verify(connection, never()).prepareStatement(startsWith("INSERT INTO order_current_state"));
+    }
+
+    private void prepareUpsert() throws Exception {
+        when(connection.prepareStatement(startsWith("INSERT INTO order_current_state"))).thenReturn(upsert);
+        when(upsert.getConnection()).thenReturn(connection);
+    }
+
+    private void returnEntries(String... recordIds) throws Exception {
+        int[] cursor = {-1};
+        when(returned.next()).thenAnswer(invocation -> ++cursor[0] < recordIds.length);
+        if (recordIds.length > 0) {
+            when(returned.getString(1)).thenReturn("stream");
+            when(returned.getString(2)).thenAnswer(invocation -> recordIds[cursor[0]]);
+        }
+    }
+
+    private void assertArray(int index, String type, Object... values) {
+        assertEquals(type, arrays.get(index)[0]);
+        assertArrayEquals(values, (Object[]) arrays.get(index)[1]);
+    }
+
+    private static OrderStateHistoryEntity row(String recordId, String fileId, String orderId, Integer distributorId,
+            String previousState, String currentState, LocalDateTime eventTime) {
+        OrderStateHistoryEntity row = new OrderStateHistoryEntity();
+        row.setStreamKey("stream");
+        row.setStreamRecordId(recordId);
+        row.setFileId(fileId);
+        row.setOrderId(orderId);
+        row.setDistributorId(distributorId);
+        row.setPreviousState(previousState);
+        row.setCurrentState(currentState);
+        row.setSourceService("svc");
+        row.setEventTime(eventTime);
+        return row;
+    }
+}
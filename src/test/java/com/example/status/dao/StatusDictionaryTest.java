@@ -0,0 +1,66 @@
+package com.example.status.dao;
+
+import com.example.status.entity.SourceServiceCodeConverter;
+import com.example.status.entity.StateCodeConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StatusDictionaryTest {
+
+    @Test
+    void testConvertersRoundTrip() {
+        StatusDictionary dictionary = StatusDictionary.inMemory();
+        StateCodeConverter states = new StateCodeConverter(dictionary);
+        SourceServiceCodeConverter sourceServices = new SourceServiceCodeConverter(dictionary);
+
+        Short received = states.convertToDatabaseColumn("RECEIVED");
+        Short tradeCapture = sourceServices.convertToDatabaseColumn("trade-capture");
+
+        assertEquals("RECEIVED", states.convertToEntityAttribute(received));
+        assertEquals("trade-capture", sourceServices.convertToEntityAttribute(tradeCapture));
+        assertEquals(received, states.convertToDatabaseColumn("RECEIVED"));
+        assertNull(states.convertToDatabaseColumn(null));
+        assertNull(states.convertToEntityAttribute(null));
+        assertNull(sourceServices.convertToDatabaseColumn(null));
+    }
+
+    @Test
+    void testNewNamesAreInsertedInTheirOwnTransaction() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        Map<String, Short> table = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map.Entry<String, Short> row : table.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(2)).thenReturn(row.getKey());
+                when(rs.getShort(1)).thenReturn(row.getValue());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq("SELECT code, name FROM status_state"), any(RowCallbackHandler.class));
+        when(jdbcTemplate.update(anyString(), eq("RECEIVED"))).thenAnswer(invocation -> {
+            table.put("RECEIVED", (short) 7);
+            return 1;
+        });
+        StatusDictionary dictionary = new StatusDictionary(jdbcTemplate, transactionManager, 10);
+
+        assertEquals(7, dictionary.states().code("RECEIVED"));
+
+        verify(jdbcTemplate).update("INSERT INTO status_state (name) VALUES (?) ON CONFLICT (name) DO NOTHING",
+                "RECEIVED");
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.status.service;
+
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ConsumerMembershipTest {
+
+    @Test
+    void testShardKeys() {
+        assertEquals(List.of("status-stream"), ConsumerMembership.shardKeys("status-stream", 1));
+        assertEquals(List.of("status-stream:0", "status-stream:1", "status-stream:2"),
+                ConsumerMembership.shardKeys("status-stream", 3));
+    }
+
+    @Test
+    void testLiveMembersSplitShardsWithoutOverlap() {
+        List<String> shards = ConsumerMembership.shardKeys("s", 4);
+        Set<String> live = Set.of("host-b-2", "host-a-1");
+
+        List<String> first = ConsumerMembership.assign(shards, live, "host-a-1");
+        List<String> second = ConsumerMembership.assign(shards, live, "host-b-2");
+
+        assertEquals(List.of("s:0", "s:2"), first);
+        assertEquals(List.of("s:1", "s:3"), second);
+    }
+
+    @Test
+    void testMembersBeyondTheShardCountStandBy() {
+        List<String> shards = ConsumerMembership.shardKeys("s", 2);
+        Set<String> live = Set.of("a", "b", "c");
+
+        assertEquals(List.of("s:0"), ConsumerMembership.assign(shards, live, "a"));
+        assertEquals(List.of("s:1"), ConsumerMembership.assign(shards, live, "b"));
+        assertEquals(List.of(), ConsumerMembership.assign(shards, live, "c"));
+        assertEquals(List.of(), ConsumerMembership.assign(List.of("s"), live, "b"));
+    }
+
+    @Test
+    void testShardIsReleasedOnlyOnceDrained() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ZSetOperations<String, String> zSet = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSet);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        ConsumerMembership membership = new ConsumerMembership(redisTemplate, "s", 2, "a");
+        ReflectionTestUtils.setField(membership, "REGISTRY_KEY", "reg");
+        ReflectionTestUtils.setField(membership, "STALE_CONSUMER_MS", 60000L);
+        ReflectionTestUtils.setField(membership, "HANDOFF_TIMEOUT_MS", 60000L);
+
+        when(zSet.rangeByScore(eq("reg"), anyDouble(), anyDouble())).thenReturn(Set.of("a"));
+        membership.heartbeat();
+        assertEquals(List.of("s:0", "s:1"), membership.ownedStreams());
+
+        when(zSet.rangeByScore(eq("reg"), anyDouble(), anyDouble())).thenReturn(Set.of("a", "b"));
+        membership.heartbeat();
+        assertEquals(List.of("s:0"), membership.ownedStreams());
+        assertEquals(Set.of("s:1"), membership.releasingStreams());
+
+        membership.heartbeat();
+        assertEquals(Set.of("s:1"), membership.releasingStreams());
+
+        membership.release("s:1");
+        assertEquals(Set.of(), membership.releasingStreams());
+    }
+
+    @Test
+    void testShardHandedOverAndBackDropsCachedStates() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        ZSetOperations<String, String> zSet = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSet);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        ConsumerMembership membership = new ConsumerMembership(redisTemplate, "s", 2, "a");
+        ReflectionTestUtils.setField(membership, "REGISTRY_KEY", "reg");
+        ReflectionTestUtils.setField(membership, "STALE_CONSUMER_MS", 60000L);
+        ReflectionTestUtils.setField(membership, "HANDOFF_TIMEOUT_MS", 60000L);
+        OrderCurrentStateDao currentStateDao = mock(OrderCurrentStateDao.class);
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 10, new SimpleMeterRegistry());
+        cache.watchShards(membership);
+
+        when(zSet.rangeByScore(eq("reg"), anyDouble(), anyDouble())).thenReturn(Set.of("a"));
+        membership.heartbeat();
+        cache.recordCommitted(List.of(row("FILE1", "RECEIVED")));
+
+        // s:1 goes to b, which writes to FILE1, and then comes back.
+        when(zSet.rangeByScore(eq("reg"), anyDouble(), anyDouble())).thenReturn(Set.of("a", "b"));
+        membership.heartbeat();
+        membership.release("s:1");
+        assertEquals("RECEIVED", cache.latestForFile("FILE1"));
+        when(zSet.rangeByScore(eq("reg"), anyDouble(), anyDouble())).thenReturn(Set.of("a"));
+        when(currentStateDao.findByStateKey("file|FILE1")).thenReturn(Optional.of(currentState("file|FILE1", "SETTLED")));
+        membership.heartbeat();
+
+        assertEquals(List.of("s:0", "s:1"), membership.ownedStreams());
+        assertEquals("SETTLED", cache.latestForFile("FILE1"));
+    }
+
+    private static OrderStateHistoryEntity row(String fileId, String state) {
+        OrderStateHistoryEntity row = new OrderStateHistoryEntity();
+        row.setFileId(fileId);
+        row.setCurrentState(state);
+        row.setEventTime(LocalDateTime.now());
+        return row;
+    }
+
+    private static OrderCurrentStateEntity currentState(String stateKey, String state) {
+        OrderCurrentStateEntity entity = new OrderCurrentStateEntity();
+        entity.setStateKey(stateKey);
+        entity.setCurrentState(state);
+        entity.setEventTime(LocalDateTime.now());
+        return entity;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.status.service;
+
+import com.example.status.dto.DlqReplayRequest;
+import com.example.status.dto.DlqReplayStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DlqReplayerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOps;
+
+    @Mock
+    private RedisOperations<String, String> pipelinedOps;
+
+    @Mock
+    private StreamOperations<String, Object, Object> pipelinedStreamOps;
+
+    @Mock
+    private ConsumerMembership membership;
+
+    private DlqReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        replayer = new DlqReplayer(redisTemplate, new StatusEventParser(), membership, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(replayer, "DLQ_STREAM", "test-dlq");
+        ReflectionTestUtils.setField(replayer, "PAGE_SIZE", 10);
+        ReflectionTestUtils.setField(replayer, "BATCH_SIZE", 10);
+        ReflectionTestUtils.setField(replayer, "DEFAULT_RATE", 1000);
+        lenient().when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        lenient().when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+    }
+
+    @Test
+    void testReplaysMatchingEntriesAndDeletesThemAtomically() {
+        when(streamOps.range(eq("test-dlq"), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(
+                        dlqEntry("5-0", "1-0", "DB failures", "order-service"),
+                        dlqEntry("6-0", "2-0", "Invalid payload", "order-service"),
+                        dlqEntry("7-0", "3-0", "DB failures", "trade-capture")))
+                .thenReturn(List.of());
+
+        DlqReplayStatus status = replayer.replay(new DlqReplayRequest("db", "order-service", null, null, null, null));
+
+        assertEquals("COMPLETED", status.state());
+        assertEquals(3, status.scanned());
+        assertEquals(1, status.replayed());
+        assertEquals(2, status.skipped());
+
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        when(pipelinedOps.opsForStream()).thenReturn((StreamOperations) pipelinedStreamOps);
+        callback.getValue().execute(pipelinedOps);
+
+        ArgumentCaptor<MapRecord<String, String, String>> replayed = ArgumentCaptor.forClass(MapRecord.class);
+        verify(pipelinedStreamOps).add(replayed.capture());
+        assertEquals("test-stream", replayed.getValue().getStream());
+        assertEquals("1-0", replayed.getValue().getValue().get("replayed_from"));
+        assertTrue(replayed.getValue().getValue().get("payload").contains("order-service"));
+        verify(pipelinedStreamOps).delete("test-dlq", RecordId.of("5-0"));
+        verify(pipelinedOps).multi();
+        verify(pipelinedOps).exec();
+    }
+
+    @Test
+    void testStopsAtLimit() {
+        when(streamOps.range(eq("test-dlq"), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(
+                        dlqEntry("5-0", "1-0", "DB failures", "order-service"),
+                        dlqEntry("6-0", "2-0", "DB failures", "order-service")));
+
+        DlqReplayStatus status = replayer.replay(new DlqReplayRequest(null, null, null, null, 1L, null));
+
+        assertEquals(1, status.replayed());
+        assertEquals("5-0", status.lastEntryId());
+        verify(streamOps, times(1)).range(eq("test-dlq"), any(Range.class), any(Limit.class));
+    }
+
+    @Test
+    void testReplayOfAReplayKeepsTheFirstRecordId() {
+        MapRecord<String, Object, Object> failedAgain = dlqEntry("8-0", "9-0", "DB failures", "order-service");
+        failedAgain.getValue().put("stream_payload", new StatusEventParser().toJson(Map.of(
+                "payload", "{\"orderId\":\"ORDER1\",\"sourceservice\":\"order-service\",\"status\":\"PROCESSING\"}",
+                "replayed_from", "1-0")));
+        when(streamOps.range(eq("test-dlq"), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(failedAgain))
+                .thenReturn(List.of());
+
+        replayer.replay(new DlqReplayRequest(null, null, null, null, null, null));
+
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        when(pipelinedOps.opsForStream()).thenReturn((StreamOperations) pipelinedStreamOps);
+        callback.getValue().execute(pipelinedOps);
+
+        ArgumentCaptor<MapRecord<String, String, String>> replayed = ArgumentCaptor.forClass(MapRecord.class);
+        verify(pipelinedStreamOps).add(replayed.capture());
+        assertEquals("1-0", replayed.getValue().getValue().get("replayed_from"));
+    }
+
+    @Test
+    void testOnlyOneReplayRunsAtATime() throws Exception {
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        when(streamOps.range(eq("test-dlq"), any(Range.class), any(Limit.class))).thenAnswer(invocation -> {
+            scanning.countDown();
+            assertTrue(finish.await(2, TimeUnit.SECONDS));
+            return List.of();
+        });
+        DlqReplayRequest request = new DlqReplayRequest(null, null, null, null, null, null);
+
+        assertNotNull(replayer.start(request));
+        assertTrue(scanning.await(1, TimeUnit.SECONDS));
+
+        assertNull(replayer.start(request));
+        assertEquals("REJECTED", replayer.replay(request).state());
+        finish.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (replayer.status().finishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("COMPLETED", replayer.replay(request).state());
+        verify(redisTemplate, atLeastOnce()).execute(any(RedisScript.class), eq(List.of("test-dlq:replay-lock")),
+                any(Object[].class));
+    }
+
+    @Test
+    void testReplayIsRefusedWhileAnotherProcessHoldsTheLock() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+        DlqReplayRequest request = new DlqReplayRequest(null, null, null, null, null, null);
+
+        DlqReplayStatus status = replayer.replay(request);
+
+        assertEquals("REJECTED", status.state());
+        assertNull(replayer.start(request));
+        verifyNoInteractions(streamOps);
+    }
+
+    private MapRecord<String, Object, Object> dlqEntry(String id, String failedId, String reason, String sourceService) {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("failed_record_id", failedId);
+        fields.put("reason", reason);
+        fields.put("attempts", "5");
+        fields.put("source_stream", "test-stream");
+        fields.put("stream_payload", new StatusEventParser().toJson(Map.of("payload",
+                "{\"orderId\":\"ORDER1\",\"sourceservice\":\"" + sourceService + "\",\"status\":\"PROCESSING\"}")));
+        return StreamRecords.newRecord().in("test-dlq").withId(RecordId.of(id)).ofMap(fields);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.status.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HistoryPartitionMaintenanceTest {
+
+    @Test
+    void testPartitionNamesRoundTrip() {
+        assertEquals("order_state_history_p202402", HistoryPartitionMaintenance.partitionName(YearMonth.of(2024, 2)));
+        assertEquals(YearMonth.of(2024, 2), HistoryPartitionMaintenance.monthOf("order_state_history_p202402"));
+        assertNull(HistoryPartitionMaintenance.monthOf("order_state_history_default"));
+    }
+
+    @Test
+    void testOnlyMonthsPastRetentionExpire() {
+        List<String> tables = List.of("order_state_history_p202402", "order_state_history_p202401",
+                "order_state_history_p202502", "order_state_history_default");
+
+        List<String> expired = HistoryPartitionMaintenance.expired(tables, LocalDate.of(2025, 2, 1), 12);
+
+        assertEquals(List.of("order_state_history_p202401"), expired);
+    }
+
+    @Test
+    void testCsvQuotesOnlyWhenNeeded() {
+        assertEquals("Validated", HistoryPartitionMaintenance.csv("Validated"));
+        assertEquals("\"a,\"\"b\"\"\"", HistoryPartitionMaintenance.csv("a,\"b\""));
+        assertEquals("", HistoryPartitionMaintenance.csv(null));
+    }
+
+    @Test
+    void testSkipsTheRunWhileAnotherInstanceHoldsTheLock() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(mock(DataSource.class));
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getBoolean(1)).thenReturn(false);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+
+        new HistoryPartitionMaintenance(jdbcTemplate, mock(PlatformTransactionManager.class)).maintain();
+
+        verify(statement).executeQuery(contains("pg_try_advisory_lock"));
+        verify(statement, never()).executeQuery(contains("pg_advisory_unlock"));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testCreatesUpcomingMonthsAndMovesStrandedRowsOutOfTheDefaultPartition() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(mock(DataSource.class));
+        when(jdbcTemplate.queryForList(contains("pg_tables"), eq(String.class)))
+                .thenReturn(List.of("order_state_history_p202501"));
+        when(jdbcTemplate.queryForObject(contains("FROM order_state_history_default"), eq(Boolean.class), any(), any()))
+                .thenReturn(true, false, false);
+        doThrow(new DataAccessResourceFailureException("lock not available"))
+                .when(jdbcTemplate).execute(contains("order_state_history_p202503 PARTITION OF"));
+        HistoryPartitionMaintenance maintenance = new HistoryPartitionMaintenance(jdbcTemplate,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(maintenance, "MONTHS_AHEAD", 3);
+
+        maintenance.createUpcoming(LocalDate.of(2025, 1, 15));
+
+        verify(jdbcTemplate).execute("CREATE TABLE order_state_history_p202502 (LIKE order_state_history "
+                + "INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        verify(jdbcTemplate).update(startsWith("WITH moved AS (DELETE FROM order_state_history_default"),
+                eq(LocalDateTime.of(2025, 2, 1, 0, 0)), eq(LocalDateTime.of(2025, 3, 1, 0, 0)));
+        verify(jdbcTemplate).execute("ALTER TABLE order_state_history ATTACH PARTITION order_state_history_p202502 "
+                + "FOR VALUES FROM ('2025-02-01') TO ('2025-03-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS order_state_history_p202504 PARTITION OF "
+                + "order_state_history FOR VALUES FROM ('2025-04-01') TO ('2025-05-01')");
+        verify(jdbcTemplate, never()).execute(contains("order_state_history_p202501"));
+    }
+
+    @Test
+    void testDetachRunsConcurrentlyUnlessTheTableHasADefaultPartition() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(mock(DataSource.class));
+        HistoryPartitionMaintenance maintenance = new HistoryPartitionMaintenance(jdbcTemplate,
+                mock(PlatformTransactionManager.class));
+
+        maintenance.detach("order_state_history_p202401", false, true);
+        maintenance.detach("order_state_history_p202402", true, true);
+        maintenance.detach("order_state_history_p202403", false, false);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute(
+                "ALTER TABLE order_state_history DETACH PARTITION order_state_history_p202401 CONCURRENTLY");
+        order.verify(jdbcTemplate).execute(
+                "ALTER TABLE order_state_history DETACH PARTITION order_state_history_p202402 FINALIZE");
+        order.verify(jdbcTemplate).execute("SET LOCAL lock_timeout = '5s'");
+        order.verify(jdbcTemplate).execute(
+                "ALTER TABLE order_state_history DETACH PARTITION order_state_history_p202403");
+    }
+}
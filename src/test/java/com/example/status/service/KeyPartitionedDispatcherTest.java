@@ -0,0 +1,61 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPartitionedDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final KeyPartitionedDispatcher dispatcher = new KeyPartitionedDispatcher(4, 100, meterRegistry);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dispatcher.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testSameKeyRunsInSubmissionOrder() throws Exception {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int step = i;
+            futures.add(dispatcher.submit("ORDER123", () -> seen.add(step)));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    void testSameKeyAlwaysMapsToSameLane() {
+        int lane = dispatcher.laneFor("FILE001");
+
+        assertEquals(lane, dispatcher.laneFor("FILE001"));
+        assertTrue(lane >= 0 && lane < dispatcher.laneCount());
+    }
+
+    @Test
+    void testSkewReportsHotLane() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            dispatcher.submit("HOT", () -> { }).get(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(4.0, dispatcher.skew(), 0.0001);
+        assertEquals(4.0, meterRegistry.get("status.consumer.lane.skew").gauge().value(), 0.0001);
+        assertEquals(4, meterRegistry.get("status.consumer.lane.queue.depth").gauges().size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.status.service;
+
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LatestStateCacheTest {
+
+    @Mock
+    private OrderCurrentStateDao currentStateDao;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testMissLoadsFromDatabaseThenHits() {
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 10, meterRegistry);
+        when(currentStateDao.findByStateKey("file|FILE001"))
+                .thenReturn(Optional.of(currentState("file|FILE001", "RECEIVED")));
+
+        assertEquals("RECEIVED", cache.latestForFile("FILE001"));
+        assertTrue(cache.fileExists("FILE001"));
+
+        verify(currentStateDao, times(1)).findByStateKey("file|FILE001");
+        assertEquals(1.0, meterRegistry.get("status.cache.latest_state").tag("result", "miss").counter().count());
+        assertEquals(1.0, meterRegistry.get("status.cache.latest_state").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testAbsenceIsNotCached() {
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 10, meterRegistry);
+        when(currentStateDao.findByStateKey("order|ORDER123")).thenReturn(Optional.empty());
+
+        assertFalse(cache.orderExists("ORDER123"));
+        assertFalse(cache.orderExists("ORDER123"));
+
+        verify(currentStateDao, times(2)).findByStateKey("order|ORDER123");
+    }
+
+    @Test
+    void testCommittedRowsAreWrittenThroughForEveryKey() {
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 10, meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+
+        cache.recordCommitted(List.of(
+                row("FILE001", "ORDER123", 42, "RECEIVED", now),
+                row("FILE001", "ORDER123", 42, "PROCESSING", now.plusSeconds(1))));
+
+        assertEquals("PROCESSING", cache.latestForFile("FILE001"));
+        assertEquals("PROCESSING", cache.latestForOrder("ORDER123"));
+        assertEquals("PROCESSING", cache.latestForOrderAndDistributor("ORDER123", 42));
+        verifyNoInteractions(currentStateDao);
+    }
+
+    @Test
+    void testOlderEventDoesNotOverwriteNewerState() {
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 10, meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+
+        cache.recordCommitted(List.of(row(null, "ORDER123", null, "COMPLETED", now)));
+        cache.recordCommitted(List.of(row(null, "ORDER123", null, "PROCESSING", now.minusSeconds(5))));
+
+        assertEquals("COMPLETED", cache.latestForOrder("ORDER123"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        LatestStateCache cache = new LatestStateCache(currentStateDao, 2, meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        cache.recordCommitted(List.of(row("FILE001", null, null, "RECEIVED", now)));
+        cache.recordCommitted(List.of(row("FILE002", null, null, "RECEIVED", now)));
+        cache.latestForFile("FILE001");
+        cache.recordCommitted(List.of(row("FILE003", null, null, "RECEIVED", now)));
+        when(currentStateDao.findByStateKey("file|FILE002")).thenReturn(Optional.empty());
+
+        assertEquals(2, cache.size());
+        assertEquals("RECEIVED", cache.latestForFile("FILE001"));
+        assertNull(cache.latestForFile("FILE002"));
+    }
+
+    private OrderCurrentStateEntity currentState(String stateKey, String state) {
+        OrderCurrentStateEntity entity = new OrderCurrentStateEntity();
+        entity.setStateKey(stateKey);
+        entity.setCurrentState(state);
+        entity.setEventTime(LocalDateTime.now());
+        return entity;
+    }
+
+    private OrderStateHistoryEntity row(String fileId, String orderId, Integer distributorId,
+            String state, LocalDateTime eventTime) {
+        OrderStateHistoryEntity entity = new OrderStateHistoryEntity();
+        entity.setFileId(fileId);
+        entity.setOrderId(orderId);
+        entity.setDistributorId(distributorId);
+        entity.setCurrentState(state);
+        entity.setEventTime(eventTime);
+        return entity;
+    }
+}
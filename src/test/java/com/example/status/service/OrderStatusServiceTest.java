@@ -0,0 +1,148 @@
+package com.example.status.service;
+
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.dao.OrderStateHistoryDao;
+import com.example.status.dto.HistoryCursor;
+import com.example.status.dto.OrderHistoryEntry;
+import com.example.status.dto.OrderHistoryPage;
+import com.example.status.dto.OrderStatusBatchResponse;
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatusServiceTest {
+
+    @Mock
+    private OrderCurrentStateDao currentStateDao;
+
+    @Mock
+    private OrderStateHistoryDao historyDao;
+
+    @Mock
+    private OrderStatusSnapshotStore snapshotStore;
+
+    private OrderStatusCache cache;
+
+    private OrderStatusService service;
+
+    @BeforeEach
+    void setUp() {
+        cache = new OrderStatusCache(100, 60_000, new SimpleMeterRegistry());
+        service = new OrderStatusService(currentStateDao, historyDao, cache, snapshotStore);
+        ReflectionTestUtils.setField(service, "EXPORT_PAGE_SIZE", 2);
+    }
+
+    @Test
+    void testBatchLoadsOnlyUncachedOrdersInOneQuery() {
+        cache.recordCommitted(List.of(historyRow("ORDER1", "SHIPPED")));
+        when(currentStateDao.findAllById(List.of(OrderCurrentStateEntity.orderKey("ORDER2"),
+                OrderCurrentStateEntity.orderKey("ORDER3"))))
+                .thenReturn(List.of(currentState("ORDER2", "RECEIVED")));
+
+        OrderStatusBatchResponse response = service.getLatestOrderStatuses(List.of("ORDER1", "ORDER2", "ORDER3", "ORDER1"));
+
+        assertEquals(List.of("ORDER1", "ORDER2"), response.statuses().stream().map(s -> s.orderId()).toList());
+        assertEquals(List.of("ORDER3"), response.notFound());
+        verify(currentStateDao, times(1)).findAllById(any());
+        assertTrue(service.getLatestOrderStatus("ORDER2").isPresent());
+        verify(currentStateDao, never()).findById(any());
+    }
+
+    @Test
+    void testSnapshotAnswersBeforeDatabase() {
+        when(snapshotStore.get("ORDER1")).thenReturn(OrderStatusView.from(historyRow("ORDER1", "SHIPPED")));
+        when(snapshotStore.getAll(List.of("ORDER2", "ORDER3")))
+                .thenReturn(Map.of("ORDER2", OrderStatusView.from(historyRow("ORDER2", "SHIPPED"))));
+        when(currentStateDao.findAllById(List.of(OrderCurrentStateEntity.orderKey("ORDER3"))))
+                .thenReturn(List.of(currentState("ORDER3", "RECEIVED")));
+
+        assertEquals("SHIPPED", service.getLatestOrderStatus("ORDER1").orElseThrow().currentState());
+        OrderStatusBatchResponse response = service.getLatestOrderStatuses(List.of("ORDER2", "ORDER3"));
+
+        assertEquals(List.of("ORDER2", "ORDER3"), response.statuses().stream().map(s -> s.orderId()).toList());
+        verify(currentStateDao, never()).findById(any());
+    }
+
+    @Test
+    void testCommittedRowReplacesCachedStatus() {
+        when(currentStateDao.findById(OrderCurrentStateEntity.orderKey("ORDER1")))
+                .thenReturn(Optional.of(currentState("ORDER1", "RECEIVED")));
+        String before = service.getLatestOrderStatus("ORDER1").orElseThrow().etag();
+
+        cache.recordCommitted(List.of(historyRow("ORDER1", "SHIPPED")));
+
+        assertEquals("SHIPPED", service.getLatestOrderStatus("ORDER1").orElseThrow().currentState());
+        assertNotEquals(before, service.getLatestOrderStatus("ORDER1").orElseThrow().etag());
+        verify(currentStateDao, times(1)).findById(any());
+    }
+
+    @Test
+    void testHistoryPagesContinueFromCursor() {
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(historyDao.findOrderHistory("ORDER1", Limit.of(3)))
+                .thenReturn(List.of(entry(1, t), entry(2, t), entry(3, t.plusSeconds(1))));
+        when(historyDao.findOrderHistoryAfter("ORDER1", t, 2, Limit.of(3)))
+                .thenReturn(List.of(entry(3, t.plusSeconds(1))));
+
+        OrderHistoryPage first = service.getOrderHistory("ORDER1", null, 2);
+        assertEquals(List.of(1L, 2L), first.entries().stream().map(OrderHistoryEntry::id).toList());
+        assertEquals(new HistoryCursor(t, 2), HistoryCursor.decode(first.nextCursor()));
+
+        OrderHistoryPage last = service.getOrderHistory("ORDER1", first.nextCursor(), 2);
+        assertEquals(List.of(3L), last.entries().stream().map(OrderHistoryEntry::id).toList());
+        assertNull(last.nextCursor());
+        assertThrows(IllegalArgumentException.class, () -> service.getOrderHistory("ORDER1", "not-a-cursor", 2));
+    }
+
+    @Test
+    void testExportWalksKeysetPagesUntilShortPage() {
+        LocalDateTime t = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(historyDao.findFileHistory("FILE1", Limit.of(2))).thenReturn(List.of(entry(1, t), entry(2, t)));
+        when(historyDao.findFileHistoryAfter("FILE1", t, 2, Limit.of(2))).thenReturn(List.of(entry(5, t)));
+
+        List<Long> exported = new ArrayList<>();
+        service.exportFileHistory("FILE1", e -> exported.add(e.id()));
+
+        assertEquals(List.of(1L, 2L, 5L), exported);
+    }
+
+    private OrderHistoryEntry entry(long id, LocalDateTime eventTime) {
+        return new OrderHistoryEntry(id, "ORDER1", "FILE1", null, null, "RECEIVED", "order-service", eventTime);
+    }
+
+    private OrderStateHistoryEntity historyRow(String orderId, String state) {
+        OrderStateHistoryEntity row = new OrderStateHistoryEntity();
+        row.setOrderId(orderId);
+        row.setCurrentState(state);
+        row.setEventTime(LocalDateTime.now());
+        return row;
+    }
+
+    private OrderCurrentStateEntity currentState(String orderId, String state) {
+        OrderCurrentStateEntity entity = new OrderCurrentStateEntity();
+        entity.setStateKey(OrderCurrentStateEntity.orderKey(orderId));
+        entity.setOrderId(orderId);
+        entity.setCurrentState(state);
+        entity.setEventTime(LocalDateTime.now().minusMinutes(1));
+        return entity;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusSnapshotStoreTest {
+
+    @Test
+    void testHashRoundTripKeepsNullsAndEtag() {
+        OrderStatusView view = new OrderStatusView("ORDER1", "FILE001", null, null, "RECEIVED", "trade-capture",
+                LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000));
+
+        List<String> pairs = OrderStatusSnapshotStore.fields(view);
+        Map<Object, Object> hash = new HashMap<>();
+        for (int i = 0; i < pairs.size(); i += 2) {
+            hash.put(pairs.get(i), pairs.get(i + 1));
+        }
+        OrderStatusView restored = OrderStatusSnapshotStore.toView(hash);
+
+        assertEquals(view, restored);
+        assertEquals(view.etag(), restored.etag());
+        assertNull(OrderStatusSnapshotStore.toView(Map.of()));
+    }
+
+    @Test
+    void testTimestampOrdersByMicroseconds() {
+        LocalDateTime t = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        assertTrue(OrderStatusSnapshotStore.timestamp(t.plusNanos(1_000)) > OrderStatusSnapshotStore.timestamp(t));
+        assertTrue(OrderStatusSnapshotStore.timestamp(t) < (1L << 53));
+    }
+}
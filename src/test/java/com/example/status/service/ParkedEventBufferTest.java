@@ -0,0 +1,82 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkedEventBufferTest {
+
+    private final ParkedEventBuffer buffer = new ParkedEventBuffer(2, 1000, new SimpleMeterRegistry());
+
+    private final CompletableFuture<List<ParkedEventBuffer.Parked>> released = new CompletableFuture<>();
+
+    @BeforeEach
+    void setUp() {
+        buffer.start(new ParkedEventBuffer.Listener() {
+            @Override
+            public void onReleased(List<ParkedEventBuffer.Parked> records) {
+                released.complete(records);
+            }
+
+            @Override
+            public void onExpired(List<ParkedEventBuffer.Parked> records) {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    void testReleasesChildrenInArrivalOrder() throws Exception {
+        assertTrue(buffer.park("file|FILE001", record("1-0"), null));
+        assertTrue(buffer.park("file|FILE001", record("2-0"), null));
+        assertTrue(buffer.isParked(RecordId.of("1-0")));
+
+        buffer.release(List.of("file|FILE001"));
+
+        List<ParkedEventBuffer.Parked> children = released.get(1, TimeUnit.SECONDS);
+        assertEquals(RecordId.of("1-0"), children.get(0).message().getId());
+        assertEquals(RecordId.of("2-0"), children.get(1).message().getId());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testRefusesWhenFull() {
+        assertTrue(buffer.park("order|A", record("1-0"), null));
+        assertTrue(buffer.park("order|B", record("2-0"), null));
+
+        assertFalse(buffer.park("order|C", record("3-0"), null));
+        assertTrue(buffer.park("order|A", record("1-0"), null), "re-parking the same record is a no-op");
+    }
+
+    @Test
+    void testExpiresOnlyAfterTtl() {
+        long now = System.currentTimeMillis();
+        buffer.park("order|A", record("1-0"), null);
+
+        assertTrue(buffer.expire(now + 500).isEmpty());
+        List<ParkedEventBuffer.Parked> stale = buffer.expire(now + 5000);
+
+        assertEquals(1, stale.size());
+        assertFalse(buffer.isParked(RecordId.of("1-0")));
+    }
+
+    private MapRecord<String, Object, Object> record(String id) {
+        return StreamRecords.newRecord().in("test-stream").withId(RecordId.of(id))
+                .ofMap(Map.<Object, Object>of("payload", "{}"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.status.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingEntriesReclaimerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOps;
+
+    @Mock
+    private StatusStreamConsumer consumer;
+
+    @Mock
+    private StreamAcknowledger acknowledger;
+
+    @Mock
+    private RetryScheduler retryScheduler;
+
+    @Mock
+    private ParkedEventBuffer parkedEvents;
+
+    @Mock
+    private RetryBacklog retryBacklog;
+
+    @Mock
+    private ConsumerMembership membership;
+
+    @Spy
+    private StatusEventParser eventParser = new StatusEventParser();
+
+    @InjectMocks
+    private PendingEntriesReclaimer reclaimer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reclaimer, "DLQ_STREAM", "test-dlq");
+        ReflectionTestUtils.setField(reclaimer, "GROUP_NAME", "test-group");
+        ReflectionTestUtils.setField(reclaimer, "MAX_DELIVERY_ATTEMPTS", 5);
+        ReflectionTestUtils.setField(reclaimer, "MIN_IDLE_MS", 60000L);
+    }
+
+    @Test
+    void testReclaimPage_RoutesOverDeliveredRecordsToDlq() throws Exception {
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(membership.consumerName()).thenReturn("test-consumer");
+        MapRecord<String, Object, Object> fresh = record("1-0");
+        MapRecord<String, Object, Object> poison = record("2-0");
+        PendingMessages pending = new PendingMessages("test-group", List.of(
+                pending("1-0", "dead-consumer", 2),
+                pending("2-0", "dead-consumer", 5)));
+        when(streamOps.claim(eq("test-stream"), eq("test-group"), eq("test-consumer"), any(XClaimOptions.class)))
+                .thenReturn(List.of(fresh, poison));
+
+        int reclaimed = reclaimer.reclaimPage("test-stream", pending);
+
+        assertEquals(2, reclaimed);
+        ArgumentCaptor<StreamAcknowledger.Batch> deadLetters = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(deadLetters.capture());
+        assertEquals(1, deadLetters.getValue().deadLetterCount());
+        verify(consumer).processReclaimed(List.of(fresh));
+    }
+
+    @Test
+    void testReclaimPage_NeverClaimsRecordsHeldLocally() throws Exception {
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(membership.consumerName()).thenReturn("test-consumer");
+        when(retryScheduler.isScheduled(RecordId.of("1-0"))).thenReturn(true);
+        when(parkedEvents.isParked(RecordId.of("2-0"))).thenReturn(true);
+        PendingMessages pending = new PendingMessages("test-group", List.of(
+                pending("1-0", "test-consumer", 1),
+                pending("2-0", "test-consumer", 1),
+                pending("3-0", "dead-consumer", 1)));
+        when(streamOps.claim(eq("test-stream"), eq("test-group"), eq("test-consumer"), any(XClaimOptions.class)))
+                .thenReturn(List.of(record("3-0")));
+
+        reclaimer.reclaimPage("test-stream", pending);
+
+        ArgumentCaptor<XClaimOptions> claim = ArgumentCaptor.forClass(XClaimOptions.class);
+        verify(streamOps).claim(eq("test-stream"), eq("test-group"), eq("test-consumer"), claim.capture());
+        assertEquals(List.of(RecordId.of("3-0")), claim.getValue().getIds());
+    }
+
+    @Test
+    void testReclaimPage_LeavesRecentlyDeliveredEntries() throws Exception {
+        PendingMessages pending = new PendingMessages("test-group", List.of(
+                new PendingMessage(RecordId.of("1-0"), Consumer.from("test-group", "other"), Duration.ofSeconds(5), 1)));
+
+        assertEquals(0, reclaimer.reclaimPage("test-stream", pending));
+
+        verifyNoInteractions(redisTemplate, acknowledger);
+    }
+
+    @Test
+    void testReclaim_RefreshesIdleTimeOfHeldRecordsWithoutClaimingThem() {
+        when(membership.ownedStreams()).thenReturn(List.of("test-stream"));
+        when(membership.consumerName()).thenReturn("test-consumer");
+        when(consumer.isRunning()).thenReturn(true);
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(retryScheduler.scheduledIds("test-stream")).thenReturn(List.of(RecordId.of("1-0")));
+        when(parkedEvents.parkedIds("test-stream")).thenReturn(List.of(RecordId.of("2-0")));
+        when(retryBacklog.heldIds("test-stream")).thenReturn(List.of());
+        ReflectionTestUtils.setField(reclaimer, "RECLAIM_BATCH_SIZE", 100);
+        ReflectionTestUtils.setField(reclaimer, "MAX_PAGES", 100);
+
+        reclaimer.reclaim();
+
+        ArgumentCaptor<RedisCallback<List<RecordId>>> refresh = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate).execute(refresh.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        refresh.getValue().doInRedis(connection);
+        ArgumentCaptor<XClaimOptions> options = ArgumentCaptor.forClass(XClaimOptions.class);
+        verify(streamCommands).xClaimJustId(any(byte[].class), eq("test-group"), eq("test-consumer"), options.capture());
+        assertEquals(List.of(RecordId.of("1-0"), RecordId.of("2-0")), options.getValue().getIds());
+        assertEquals(Duration.ZERO, options.getValue().getMinIdleTime());
+    }
+
+    @Test
+    void testMinIdleMustExceedReclaimInterval() {
+        ReflectionTestUtils.setField(reclaimer, "RECLAIM_INTERVAL_MS", 60000L);
+
+        assertThrows(IllegalStateException.class, reclaimer::checkIdleWindow);
+    }
+
+    @Test
+    void testReclaim_SkipsWhenConsumerStopped() {
+        when(membership.ownedStreams()).thenReturn(List.of("test-stream"));
+        when(consumer.isRunning()).thenReturn(false);
+
+        reclaimer.reclaim();
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private PendingMessage pending(String id, String owner, long deliveries) {
+        return new PendingMessage(RecordId.of(id), Consumer.from("test-group", owner), Duration.ofMinutes(2), deliveries);
+    }
+
+    private MapRecord<String, Object, Object> record(String id) {
+        Map<Object, Object> body = Map.of("payload", "{\"fileId\":\"FILE001\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}");
+        return StreamRecords.newRecord().in("test-stream").withId(RecordId.of(id)).ofMap(body);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.RecordId;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetrySchedulerTest {
+
+    private final RetryScheduler scheduler = new RetryScheduler(3, 10, 40, 2, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testRunsRetryAfterBackoffAndForgetsId() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        RecordId id = RecordId.of("1-0");
+
+        assertTrue(scheduler.schedule("test-stream", id, 2, ran::countDown));
+        assertTrue(scheduler.isScheduled(id));
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertFalse(scheduler.isScheduled(id));
+    }
+
+    @Test
+    void testRefusesWhenAttemptsExhaustedOrQueueFull() {
+        assertFalse(scheduler.schedule("test-stream", RecordId.of("1-0"), 4, () -> { }));
+
+        RetryScheduler full = new RetryScheduler(3, 60_000, 60_000, 1, new SimpleMeterRegistry());
+        try {
+            assertTrue(full.schedule("test-stream", RecordId.of("1-0"), 2, () -> { }));
+            assertTrue(full.isScheduled(RecordId.of("1-0")));
+            assertEquals(List.of(RecordId.of("1-0")), full.scheduledIds("test-stream"));
+            assertTrue(full.scheduledIds("other-stream").isEmpty());
+            assertFalse(full.schedule("test-stream", RecordId.of("2-0"), 2, () -> { }));
+        } finally {
+            full.shutdown();
+        }
+    }
+
+    @Test
+    void testBackoffGrowsAndIsCapped() {
+        for (int i = 0; i < 20; i++) {
+            long first = scheduler.backoffMillis(2);
+            long capped = scheduler.backoffMillis(10);
+            assertTrue(first >= 5 && first <= 10, "first retry " + first);
+            assertTrue(capped >= 20 && capped <= 40, "capped retry " + capped);
+        }
+    }
+}
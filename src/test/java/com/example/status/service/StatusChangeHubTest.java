@@ -0,0 +1,127 @@
+package com.example.status.service;
+
+import com.example.status.dto.OrderStatusView;
+import com.example.status.entity.OrderStateHistoryEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusChangeHubTest {
+
+    private final StatusChangeHub hub = new StatusChangeHub(2, 2, 1000, 1, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void testFansOutToOrderAndFileSubscribers() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(2);
+        List<String> orderEvents = new CopyOnWriteArrayList<>();
+        List<String> fileEvents = new CopyOnWriteArrayList<>();
+        hub.subscribe("order|ORDER1", status -> { orderEvents.add(status.currentState()); delivered.countDown(); });
+        hub.subscribe("file|FILE001", status -> { fileEvents.add(status.currentState()); delivered.countDown(); });
+
+        hub.publish(List.of(row("ORDER1", "FILE001", "Validated"), row("ORDER2", "FILE002", "Validated")));
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("Validated"), orderEvents);
+        assertEquals(List.of("Validated"), fileEvents);
+    }
+
+    @Test
+    void testSlowSubscriberLosesOldestEvents() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> received = new CopyOnWriteArrayList<>();
+        hub.subscribe("order|ORDER1", status -> {
+            blocked.countDown();
+            await(unblock);
+            received.add(status.currentState());
+            done.countDown();
+        });
+
+        hub.publish(List.of(row("ORDER1", null, "S1")));
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+        for (String state : List.of("S2", "S3", "S4")) {
+            hub.publish(List.of(row("ORDER1", null, state)));
+        }
+        unblock.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("S1", "S3", "S4"), received);
+    }
+
+    @Test
+    void testFailedSubscriberIsRemovedAndLimitApplies() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        hub.subscribe("order|ORDER1", status -> {
+            failed.countDown();
+            throw new IOException("client gone");
+        });
+        assertNotNull(hub.subscribe("order|ORDER2", status -> { }));
+        assertNull(hub.subscribe("order|ORDER3", status -> { }));
+
+        hub.publish(List.of(row("ORDER1", null, "Validated")));
+
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && hub.subscriberCount() > 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, hub.subscriberCount());
+    }
+
+    @Test
+    void testTransitionsOlderThanTheSnapshotAreDropped() throws Exception {
+        LocalDateTime snapshotTime = LocalDateTime.of(2025, 1, 1, 12, 0);
+        CountDownLatch delivered = new CountDownLatch(2);
+        List<String> received = new CopyOnWriteArrayList<>();
+        StatusChangeHub.Subscriber subscriber = hub.register("order|ORDER1", status -> {
+            received.add(status.currentState());
+            delivered.countDown();
+        });
+
+        hub.publish(List.of(row("ORDER1", null, "Old", snapshotTime.minusSeconds(1))));
+        OrderStateHistoryEntity current = row("ORDER1", null, "Current", snapshotTime);
+        hub.publish(List.of(current));
+        subscriber.start(OrderStatusView.from(current), true);
+        hub.publish(List.of(row("ORDER1", null, "Late", snapshotTime.minusSeconds(2))));
+        hub.publish(List.of(row("ORDER1", null, "Next", snapshotTime.plusSeconds(1))));
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(List.of("Current", "Next"), received);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private OrderStateHistoryEntity row(String orderId, String fileId, String state) {
+        return row(orderId, fileId, state, LocalDateTime.now());
+    }
+
+    private OrderStateHistoryEntity row(String orderId, String fileId, String state, LocalDateTime eventTime) {
+        OrderStateHistoryEntity row = new OrderStateHistoryEntity();
+        row.setOrderId(orderId);
+        row.setFileId(fileId);
+        row.setCurrentState(state);
+        row.setEventTime(eventTime);
+        return row;
+    }
+}
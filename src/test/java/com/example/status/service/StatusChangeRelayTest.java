@@ -0,0 +1,103 @@
+package com.example.status.service;
+
+import com.example.status.entity.OrderStateHistoryEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatusChangeRelayTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_000);
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatusChangeHub consumerHub = new StatusChangeHub(10, 8, 1000, 1, meterRegistry);
+    private final StatusChangeHub apiHub = new StatusChangeHub(10, 8, 1000, 1, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        consumerHub.shutdown();
+        apiHub.shutdown();
+    }
+
+    @Test
+    void testCommitsReachSubscribersOfAnotherInstanceOnlyThroughTheChannel() throws Exception {
+        StatusChangeRelay consumer = relay(consumerHub, true);
+        StatusChangeRelay api = relay(apiHub, true);
+        List<String> local = new CopyOnWriteArrayList<>();
+        List<String> remote = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        consumerHub.subscribe("order|ORDER1", status -> local.add(status.currentState()));
+        apiHub.subscribe("order|ORDER1", status -> {
+            remote.add(status.currentState() + "@" + status.eventTime());
+            delivered.countDown();
+        });
+        apiHub.subscribe("file|FILE001", status -> delivered.countDown());
+
+        consumer.publish(List.of(row("ORDER1", "FILE001", "Validated")));
+
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("status-changes"), message.capture());
+        api.receive(message.getValue().getBytes(StandardCharsets.UTF_8));
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("Validated@" + T0), remote);
+        assertTrue(local.isEmpty());
+    }
+
+    @Test
+    void testDisabledRelayPublishesToLocalSubscribersOnly() throws Exception {
+        StatusChangeRelay relay = relay(consumerHub, false);
+        CountDownLatch delivered = new CountDownLatch(1);
+        consumerHub.subscribe("order|ORDER1", status -> delivered.countDown());
+
+        relay.publish(List.of(row("ORDER1", null, "Validated")));
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void testRedisErrorsDropTheEventsWithoutFailingTheCommit() {
+        StatusChangeRelay relay = relay(consumerHub, true);
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenThrow(new IllegalStateException("down"));
+
+        assertDoesNotThrow(() -> relay.publish(List.of(row("ORDER1", null, "Validated"))));
+        assertEquals(1.0, meterRegistry.counter("status.api.sse.relay.errors").count());
+    }
+
+    private StatusChangeRelay relay(StatusChangeHub hub, boolean enabled) {
+        return new StatusChangeRelay(redisTemplate, null, hub, objectMapper, enabled, true, "status-changes",
+                meterRegistry);
+    }
+
+    private static OrderStateHistoryEntity row(String orderId, String fileId, String state) {
+        OrderStateHistoryEntity row = new OrderStateHistoryEntity();
+        row.setOrderId(orderId);
+        row.setFileId(fileId);
+        row.setCurrentState(state);
+        row.setEventTime(T0);
+        return row;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.status.service;
+
+import com.example.status.dto.StatusEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusEventParserTest {
+
+    private final StatusEventParser parser = new StatusEventParser();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testParse_ValidJson() throws Exception {
+        Map<String, Object> expectedPayload = new HashMap<>();
+        expectedPayload.put("sourceservice", "trade-capture");
+        expectedPayload.put("status", "RECEIVED");
+
+        String jsonPayload = objectMapper.writeValueAsString(expectedPayload);
+
+        StatusEvent result = parser.parse(jsonPayload);
+
+        assertNotNull(result);
+        assertEquals("trade-capture", result.sourceService());
+        assertEquals("RECEIVED", result.status());
+        assertTrue(result.isTradeCapture());
+    }
+
+    @Test
+    void testParse_MapInput() {
+        Map<String, Object> inputMap = new HashMap<>();
+        inputMap.put("sourceservice", "trade-capture");
+        inputMap.put("status", "RECEIVED");
+
+        StatusEvent result = parser.parse(inputMap);
+
+        assertNotNull(result);
+        assertEquals("trade-capture", result.sourceService());
+        assertEquals("RECEIVED", result.status());
+    }
+
+    @Test
+    void testParse_InvalidJson() {
+        StatusEvent result = parser.parse("invalid json");
+
+        assertNull(result);
+    }
+
+    @Test
+    void testParse_KeyValueFallback() {
+        StatusEvent result = parser.parse("{fileId:FILE001,sourceservice:trade-capture,status:RECEIVED}");
+
+        assertNotNull(result);
+        assertEquals("FILE001", result.fileId());
+        assertEquals("RECEIVED", result.status());
+    }
+
+    @Test
+    void testParse_AliasSpellings() {
+        StatusEvent result = parser.parse("{\"source_service\":\"order-service\",\"status\":\"PROCESSING\","
+                + "\"file_id\":\"FILE001\",\"order_id\":\"ORDER123\",\"firm_id\":\"42\",\"extra\":1}");
+
+        assertEquals("order-service", result.sourceService());
+        assertEquals("FILE001", result.fileId());
+        assertEquals("ORDER123", result.orderId());
+        assertEquals(42, result.distributorId());
+    }
+
+    @Test
+    void testParse_BlankAndNullStringsAreAbsent() {
+        StatusEvent result = parser.parse("{\"fileId\":\"null\",\"orderId\":\"  \",\"sourceservice\":\" trade-capture \","
+                + "\"status\":\"RECEIVED\"}");
+
+        assertNull(result.fileId());
+        assertNull(result.orderId());
+        assertEquals("trade-capture", result.sourceService());
+    }
+
+    @Test
+    void testParse_NumericDistributorId() {
+        StatusEvent result = parser.parse("{\"orderId\":\"ORDER123\",\"distributor_id\":42,"
+                + "\"sourceservice\":\"order-service\",\"status\":\"COMPLETED\"}");
+
+        assertEquals(42, result.distributorId());
+    }
+
+    @Test
+    void testParse_InvalidDistributorId() {
+        StatusEvent result = parser.parse("{\"orderId\":\"ORDER123\",\"distributor_id\":\"invalid\","
+                + "\"sourceservice\":\"order-service\",\"status\":\"COMPLETED\"}");
+
+        assertNull(result.distributorId());
+    }
+
+    @Test
+    void testToJson_ValidMap() {
+        Map<Object, Object> map = new HashMap<>();
+        map.put("key1", "value1");
+        map.put("key2", "value2");
+
+        String result = parser.toJson(map);
+
+        assertTrue(result.contains("key1"));
+        assertTrue(result.contains("value1"));
+    }
+}
@@ -1,21 +1,39 @@
 package com.example.status.service;
 
+import com.example.status.dao.CodeTable;
+import com.example.status.dao.OrderCurrentStateDao;
+import com.example.status.dao.OrderStateHistoryBatchWriter;
 import com.example.status.dao.OrderStateHistoryDao;
+import com.example.status.dao.StatusDictionary;
+import com.example.status.entity.OrderCurrentStateEntity;
+import com.example.status.entity.OrderStateHistoryEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
 import org.springframework.data.redis.core.StreamOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,145 +45,305 @@ class StatusStreamConsumerTest {
     @Mock
     private OrderStateHistoryDao historyDao;
 
+    @Mock
+    private OrderStateHistoryBatchWriter batchWriter;
+
+    @Mock
+    private OrderCurrentStateDao currentStateDao;
+
+    @Mock
+    private StreamAcknowledger acknowledger;
+
+    @Mock
+    private RetryScheduler retryScheduler;
+
+    @Mock
+    private ParkedEventBuffer parkedEvents;
+
+    @Mock
+    private RetryBacklog retryBacklog;
+
+    @Mock
+    private ConsumerMembership membership;
+
     @InjectMocks
     private StatusStreamConsumer statusStreamConsumer;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(statusStreamConsumer, "STREAM_KEY", "test-stream");
         ReflectionTestUtils.setField(statusStreamConsumer, "DLQ_STREAM", "test-dlq");
         ReflectionTestUtils.setField(statusStreamConsumer, "GROUP_NAME", "test-group");
-        ReflectionTestUtils.setField(statusStreamConsumer, "CONSUMER_NAME", "test-consumer");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(meterRegistry);
+        LatestStateCache latestStateCache = new LatestStateCache(currentStateDao, 100, meterRegistry);
+        ReflectionTestUtils.setField(statusStreamConsumer, "latestStateCache", latestStateCache);
+        ReflectionTestUtils.setField(statusStreamConsumer, "transitionBuilder", new StatusTransitionBuilder(latestStateCache, metrics,
+                StatusDictionary.inMemory()));
+        ReflectionTestUtils.setField(statusStreamConsumer, "metrics", metrics);
+        ReflectionTestUtils.setField(statusStreamConsumer, "orderStatusCache", new OrderStatusCache(100, 5000, meterRegistry));
+        ReflectionTestUtils.setField(statusStreamConsumer, "orderStatusSnapshotStore",
+                new OrderStatusSnapshotStore(redisTemplate, false, "status:order:", 60, meterRegistry));
+        ReflectionTestUtils.setField(statusStreamConsumer, "statusChangeRelay", new StatusChangeRelay(redisTemplate, null,
+                new StatusChangeHub(10, 8, 1000, 1, meterRegistry), new ObjectMapper(), false, false, "status-changes",
+                meterRegistry));
+        ReflectionTestUtils.setField(statusStreamConsumer, "eventParser", new StatusEventParser());
+        lenient().when(batchWriter.writeBatch(any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
-    void testParsePayload_ValidJson() throws Exception {
-        Map<String, Object> expectedPayload = new HashMap<>();
-        expectedPayload.put("sourceservice", "trade-capture");
-        expectedPayload.put("status", "RECEIVED");
-        
-        String jsonPayload = objectMapper.writeValueAsString(expectedPayload);
+    void testExtractEventTime() {
+        String recordId = "1234567890123-0";
         
-        Map<String, Object> result = invokeParsePayload(jsonPayload);
+        LocalDateTime result = StatusTransitionBuilder.extractEventTime(recordId);
         
         assertNotNull(result);
-        assertEquals("trade-capture", result.get("sourceservice"));
-        assertEquals("RECEIVED", result.get("status"));
     }
 
     @Test
-    void testParsePayload_MapInput() {
-        Map<String, Object> inputMap = new HashMap<>();
-        inputMap.put("sourceservice", "trade-capture");
-        inputMap.put("status", "RECEIVED");
-        
-        Map<String, Object> result = invokeParsePayload(inputMap);
-        
-        assertNotNull(result);
-        assertEquals("trade-capture", result.get("sourceservice"));
-        assertEquals("RECEIVED", result.get("status"));
+    void testProcessBatch_WritesBatchInOneCallAndAcksTogether() throws Exception {
+        List<MapRecord<String, Object, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(record("1234567890123-" + i,
+                    "{\"fileId\":\"FILE00" + i + "\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"));
+        }
+
+        invokeProcessBatch(batch);
+
+        ArgumentCaptor<List<OrderStateHistoryEntity>> rows = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).writeBatch(rows.capture());
+        assertEquals(5, rows.getValue().size());
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(5, acks.getValue().size());
+        assertEquals(0, acks.getValue().deadLetterCount());
     }
 
     @Test
-    void testParsePayload_InvalidJson() {
-        String invalidJson = "invalid json";
-        
-        Map<String, Object> result = invokeParsePayload(invalidJson);
-        
-        assertNull(result);
+    void testProcessBatch_ChainsPreviousStateWithinBatch() throws Exception {
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE001\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"),
+                record("1234567890123-1", "{\"fileId\":\"FILE001\",\"orderId\":\"ORDER123\",\"distributor_id\":\"42\","
+                        + "\"sourceservice\":\"order-service\",\"status\":\"PROCESSING\"}"));
+
+        invokeProcessBatch(batch);
+
+        ArgumentCaptor<List<OrderStateHistoryEntity>> rows = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).writeBatch(rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertNull(rows.getValue().get(0).getPreviousState());
+        assertEquals("RECEIVED", rows.getValue().get(1).getPreviousState());
+        verify(currentStateDao, times(1)).findByStateKey(OrderCurrentStateEntity.fileKey("FILE001"));
     }
 
     @Test
-    void testExtractEventTime() {
-        String recordId = "1234567890123-0";
-        
-        LocalDateTime result = invokeExtractEventTime(recordId);
-        
-        assertNotNull(result);
+    void testProcessBatch_ReplayedRecordKeepsItsOriginalIdAndEventTime() throws Exception {
+        MapRecord<String, Object, Object> replayed = record("1234567899999-0",
+                "{\"fileId\":\"FILE001\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}");
+        replayed.getValue().put(DlqReplayer.REPLAYED_FROM, "1234567890123-4");
+
+        invokeProcessBatch(List.of(replayed));
+
+        ArgumentCaptor<List<OrderStateHistoryEntity>> rows = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).writeBatch(rows.capture());
+        OrderStateHistoryEntity row = rows.getValue().get(0);
+        assertEquals("1234567890123-4", row.getStreamRecordId());
+        assertEquals("test-stream", row.getStreamKey());
+        assertEquals(StatusTransitionBuilder.extractEventTime("1234567890123-4"), row.getEventTime());
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(1, acks.getValue().size());
     }
 
     @Test
-    void testGetStringValue_FirstFieldFound() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("field1", "value1");
-        map.put("field2", "value2");
-        
-        String result = invokeGetStringValue(map, "field1", "field2");
-        
-        assertEquals("value1", result);
+    void testProcessBatch_InvalidRecordGoesToDlqInSamePipeline() throws Exception {
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE001\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"),
+                record("1234567890123-1", "{\"sourceservice\":\"trade-capture\"}"));
+
+        invokeProcessBatch(batch);
+
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(2, acks.getValue().size());
+        assertEquals(1, acks.getValue().deadLetterCount());
+        verifyNoInteractions(redisTemplate);
     }
 
     @Test
-    void testGetStringValue_SecondFieldFound() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("field2", "value2");
-        
-        String result = invokeGetStringValue(map, "field1", "field2");
-        
-        assertEquals("value2", result);
+    void testProcessBatch_ChildBeforeParentIsParkedNotRetried() throws Exception {
+        ReflectionTestUtils.setField(statusStreamConsumer, "running", true);
+        RecordId childId = RecordId.of("1234567890123-0");
+        when(parkedEvents.park(eq(OrderCurrentStateEntity.fileKey("FILE009")), any(), any())).thenReturn(true);
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE009\",\"orderId\":\"ORDER9\",\"distributor_id\":\"1\","
+                        + "\"sourceservice\":\"order-service\",\"status\":\"PROCESSING\"}"));
+
+        invokeProcessBatch(batch);
+
+        verify(parkedEvents).park(eq(OrderCurrentStateEntity.fileKey("FILE009")), argThat(m -> childId.equals(m.getId())), any());
+        verifyNoInteractions(retryScheduler);
+        verify(batchWriter, never()).writeBatch(any());
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertTrue(acks.getValue().isEmpty());
     }
 
     @Test
-    void testGetStringValue_NoFieldFound() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("field3", "value3");
-        
-        String result = invokeGetStringValue(map, "field1", "field2");
-        
-        assertNull(result);
+    void testProcessBatch_ParentCommitReleasesParkedChildren() throws Exception {
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE010\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"));
+
+        invokeProcessBatch(batch);
+
+        verify(parkedEvents).release(argThat(keys -> keys.contains(OrderCurrentStateEntity.fileKey("FILE010"))));
     }
 
     @Test
-    void testGetIntValue_ValidInteger() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("field1", "42");
-        
-        Integer result = invokeGetIntValue(map, "field1");
-        
-        assertEquals(42, result);
+    void testProcessBatch_RedeliveredRecordIsAckedWithoutSideEffects() throws Exception {
+        when(batchWriter.writeBatch(any())).thenReturn(List.of());
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE011\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"));
+
+        invokeProcessBatch(batch);
+
+        ArgumentCaptor<List<OrderStateHistoryEntity>> rows = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).writeBatch(rows.capture());
+        assertEquals("test-stream", rows.getValue().get(0).getStreamKey());
+        assertEquals("1234567890123-0", rows.getValue().get(0).getStreamRecordId());
+        verify(parkedEvents, never()).release(argThat(keys -> !keys.isEmpty()));
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(1, acks.getValue().size());
+        assertEquals(0, acks.getValue().deadLetterCount());
     }
 
     @Test
-    void testGetIntValue_InvalidInteger() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("field1", "invalid");
-        
-        Integer result = invokeGetIntValue(map, "field1");
-        
-        assertNull(result);
+    void testProcessBatch_MissingIdentifiersGoStraightToDlq() throws Exception {
+        ReflectionTestUtils.setField(statusStreamConsumer, "running", true);
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE012\",\"sourceservice\":\"order-service\",\"status\":\"PROCESSING\"}"));
+
+        invokeProcessBatch(batch);
+
+        verifyNoInteractions(retryScheduler);
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(1, acks.getValue().deadLetterCount());
     }
 
     @Test
-    void testToJson_ValidMap() {
-        Map<Object, Object> map = new HashMap<>();
-        map.put("key1", "value1");
-        map.put("key2", "value2");
-        
-        String result = invokeToJson(map);
-        
-        assertTrue(result.contains("key1"));
-        assertTrue(result.contains("value1"));
-    }
+    void testProcessBatch_OrderEventsWithAndWithoutFileIdUseSeparateLanesAndTheCacheKeepsTheNewest() throws Exception {
+        KeyPartitionedDispatcher dispatcher = new KeyPartitionedDispatcher(8, 10, null);
+        String orderId = "ORDER1";
+        for (int i = 2; dispatcher.laneFor(orderId) == dispatcher.laneFor("FILE020"); i++) {
+            orderId = "ORDER" + i;
+        }
+        String orderOnly = orderId;
+        // The fileId event is older, but its lane only commits after the orderId-only event's lane.
+        CountDownLatch newerWritten = new CountDownLatch(1);
+        List<String> previousStates = Collections.synchronizedList(new ArrayList<>());
+        when(batchWriter.writeBatch(any())).thenAnswer(invocation -> {
+            List<OrderStateHistoryEntity> rows = invocation.getArgument(0);
+            OrderStateHistoryEntity row = rows.get(0);
+            if (row.getFileId() != null) {
+                assertTrue(newerWritten.await(2, TimeUnit.SECONDS));
+            } else {
+                previousStates.add(String.valueOf(row.getPreviousState()));
+                newerWritten.countDown();
+            }
+            return rows;
+        });
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE020\",\"orderId\":\"" + orderOnly
+                        + "\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"),
+                record("1234567890124-0", "{\"orderId\":\"" + orderOnly
+                        + "\",\"sourceservice\":\"trade-capture\",\"status\":\"VALIDATED\"}"));
+
+        ReflectionTestUtils.setField(statusStreamConsumer, "dispatcher", dispatcher);
+        try {
+            ReflectionTestUtils.invokeMethod(statusStreamConsumer, "processBatch", batch);
+        } finally {
+            dispatcher.shutdown(1, TimeUnit.SECONDS);
+        }
 
-    private Map<String, Object> invokeParsePayload(Object payloadObj) {
-        return (Map<String, Object>) ReflectionTestUtils.invokeMethod(statusStreamConsumer, "parsePayload", payloadObj);
+        verify(batchWriter, times(2)).writeBatch(any());
+        // Not chained behind the fileId event, which had not committed yet.
+        assertEquals(List.of("null"), previousStates);
+        LatestStateCache cache = (LatestStateCache) ReflectionTestUtils.getField(statusStreamConsumer, "latestStateCache");
+        assertEquals("VALIDATED", cache.latestForOrder(orderOnly));
+        assertEquals("RECEIVED", cache.latestForFile("FILE020"));
     }
 
-    private LocalDateTime invokeExtractEventTime(String recordId) {
-        return (LocalDateTime) ReflectionTestUtils.invokeMethod(statusStreamConsumer, "extractEventTime", recordId);
+    @Test
+    void testProcessBatch_StateBeyondTheDictionaryLimitGoesStraightToDlq() throws Exception {
+        ReflectionTestUtils.setField(statusStreamConsumer, "running", true);
+        LatestStateCache latestStateCache = new LatestStateCache(currentStateDao, 100, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(statusStreamConsumer, "transitionBuilder", new StatusTransitionBuilder(
+                latestStateCache, new PipelineMetrics(new SimpleMeterRegistry()),
+                new StatusDictionary(CodeTable.inMemory("state", 1), CodeTable.inMemory("source service"))));
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE014\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"),
+                record("1234567890123-1", "{\"fileId\":\"FILE015\",\"sourceservice\":\"trade-capture\",\"status\":\"BOGUS\"}"));
+
+        invokeProcessBatch(batch);
+
+        verifyNoInteractions(retryScheduler);
+        ArgumentCaptor<StreamAcknowledger.Batch> acks = ArgumentCaptor.forClass(StreamAcknowledger.Batch.class);
+        verify(acknowledger).flush(acks.capture());
+        assertEquals(1, acks.getValue().deadLetterCount());
+        verify(batchWriter).writeBatch(argThat(rows -> rows.size() == 1
+                && "FILE014".equals(rows.iterator().next().getFileId())));
     }
 
-    private String invokeGetStringValue(Map<String, Object> map, String... fieldNames) {
-        return (String) ReflectionTestUtils.invokeMethod(statusStreamConsumer, "getStringValue", map, fieldNames);
+    @Test
+    void testProcessBatch_DatabaseFailureIsRetriedBeforeLaterRecordsOfTheKey() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryScheduler scheduler = new RetryScheduler(3, 10, 20, 100, meterRegistry);
+        ReflectionTestUtils.setField(statusStreamConsumer, "retryScheduler", scheduler);
+        ReflectionTestUtils.setField(statusStreamConsumer, "retryBacklog", new RetryBacklog(100, meterRegistry));
+        ReflectionTestUtils.setField(statusStreamConsumer, "running", true);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger(2);
+        when(batchWriter.writeBatch(any())).thenAnswer(invocation -> {
+            List<OrderStateHistoryEntity> rows = invocation.getArgument(0);
+            if (failures.getAndDecrement() > 0) {
+                throw new DataAccessResourceFailureException("database down");
+            }
+            rows.forEach(row -> written.add(row.getStreamRecordId() + ":" + row.getPreviousState()));
+            return rows;
+        });
+        List<MapRecord<String, Object, Object>> batch = List.of(
+                record("1234567890123-0", "{\"fileId\":\"FILE013\",\"sourceservice\":\"trade-capture\",\"status\":\"RECEIVED\"}"),
+                record("1234567890123-1", "{\"fileId\":\"FILE013\",\"sourceservice\":\"trade-capture\",\"status\":\"VALIDATED\"}"));
+
+        KeyPartitionedDispatcher dispatcher = new KeyPartitionedDispatcher(1, 10, null);
+        ReflectionTestUtils.setField(statusStreamConsumer, "dispatcher", dispatcher);
+        try {
+            ReflectionTestUtils.invokeMethod(statusStreamConsumer, "processBatch", batch);
+            // Batch insert and the first single attempt fail; the second record must wait for the retry.
+            verify(batchWriter, timeout(2000).times(4)).writeBatch(any());
+        } finally {
+            scheduler.shutdown();
+            dispatcher.shutdown(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("1234567890123-0:null", "1234567890123-1:RECEIVED"), written);
     }
 
-    private Integer invokeGetIntValue(Map<String, Object> map, String... fieldNames) {
-        return (Integer) ReflectionTestUtils.invokeMethod(statusStreamConsumer, "getIntValue", map, fieldNames);
+    private MapRecord<String, Object, Object> record(String id, String payload) {
+        Map<Object, Object> body = new HashMap<>();
+        body.put("payload", payload);
+        return StreamRecords.newRecord().in("test-stream").withId(RecordId.of(id)).ofMap(body);
     }
 
-    private String invokeToJson(Map<Object, Object> map) {
-        return (String) ReflectionTestUtils.invokeMethod(statusStreamConsumer, "toJson", map);
+    private void invokeProcessBatch(List<MapRecord<String, Object, Object>> batch) throws Exception {
+        KeyPartitionedDispatcher dispatcher = new KeyPartitionedDispatcher(1, 10, null);
+        ReflectionTestUtils.setField(statusStreamConsumer, "dispatcher", dispatcher);
+        try {
+            ReflectionTestUtils.invokeMethod(statusStreamConsumer, "processBatch", batch);
+        } finally {
+            dispatcher.shutdown(1, TimeUnit.SECONDS);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamAcknowledgerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    @Mock
+    private RedisStreamCommands streamCommands;
+
+    @Test
+    void testFlushSendsDlqScriptAckAndDeleteInOnePipeline() {
+        StreamAcknowledger acknowledger = new StreamAcknowledger(redisTemplate, 1000, new PipelineMetrics(new SimpleMeterRegistry()));
+        StreamAcknowledger.Batch batch = new StreamAcknowledger.Batch("test-stream", "test-group", "test-dlq");
+        batch.complete(List.of(RecordId.of("1-0"), RecordId.of("2-0")));
+        batch.deadLetter(RecordId.of("3-0"), "{}", 3, "DB failures");
+
+        acknowledger.flush(batch);
+
+        ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate, times(1)).executePipelined(callback.capture());
+
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        callback.getValue().doInRedis(connection);
+
+        ArgumentCaptor<byte[][]> args = ArgumentCaptor.forClass(byte[][].class);
+        verify(scriptingCommands, times(1)).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), args.capture());
+        assertEquals("test-stream", string(args.getValue()[0]));
+        assertEquals("test-dlq", string(args.getValue()[1]));
+        assertEquals("1000", string(args.getValue()[2]));
+        assertEquals("3-0", string(args.getValue()[4]));
+        // The dead-lettered id is only acknowledged inside its script, after the XADD.
+        verify(streamCommands, times(1)).xAck(any(byte[].class), eq("test-group"),
+                eq(RecordId.of("1-0")), eq(RecordId.of("2-0")));
+        verify(streamCommands, times(1)).xDel(any(byte[].class),
+                eq(RecordId.of("1-0")), eq(RecordId.of("2-0")));
+    }
+
+    @Test
+    void testOnlyDeadLettersSkipAckAndDelete() {
+        StreamAcknowledger acknowledger = new StreamAcknowledger(redisTemplate, 0, new PipelineMetrics(new SimpleMeterRegistry()));
+        StreamAcknowledger.Batch batch = new StreamAcknowledger.Batch("test-stream", "test-group", "test-dlq");
+        batch.deadLetter(RecordId.of("3-0"), "{}", 1, "Invalid payload");
+
+        acknowledger.flush(batch);
+
+        ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        callback.getValue().doInRedis(connection);
+
+        verify(scriptingCommands).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), any(byte[][].class));
+        verify(connection, never()).streamCommands();
+    }
+
+    @Test
+    void testEmptyBatchSkipsRedis() {
+        StreamAcknowledger acknowledger = new StreamAcknowledger(redisTemplate, 1000, new PipelineMetrics(new SimpleMeterRegistry()));
+
+        acknowledger.flush(new StreamAcknowledger.Batch("test-stream", "test-group", "test-dlq"));
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
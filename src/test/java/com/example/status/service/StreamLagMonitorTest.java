@@ -0,0 +1,46 @@
+package com.example.status.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamLagMonitorTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOps;
+
+    @Mock
+    private ConsumerMembership membership;
+
+    @Test
+    void testPublishesLagAndPendingOfOwnGroup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StreamLagMonitor monitor = new StreamLagMonitor(redisTemplate, membership, meterRegistry);
+        ReflectionTestUtils.setField(monitor, "GROUP_NAME", "test-group");
+        when(membership.allStreams()).thenReturn(List.of("test-stream"));
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(streamOps.groups("test-stream")).thenReturn(StreamInfo.XInfoGroups.fromList(List.of(
+                List.of("name", "other-group", "consumers", 1L, "pending", 99L, "last-delivered-id", "0-0", "lag", 99L),
+                List.of("name", "test-group", "consumers", 2L, "pending", 3L, "last-delivered-id", "5-0", "lag", 7L))));
+
+        monitor.sample();
+
+        assertEquals(7, meterRegistry.get("status.stream.lag").tag("stream", "test-stream").gauge().value());
+        assertEquals(3, meterRegistry.get("status.stream.pending").tag("stream", "test-stream").gauge().value());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.status.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLruCacheTest {
+
+    @Test
+    void testStripedCacheStaysWithinItsBound() {
+        StripedLruCache<Integer> cache = new StripedLruCache<>(4096);
+
+        for (int i = 0; i < 20_000; i++) {
+            cache.put("key-" + i, i, (existing, update) -> false);
+        }
+
+        assertTrue(cache.size() <= 4096);
+        assertEquals(19_999, cache.get("key-19999"));
+    }
+
+    @Test
+    void testExistingEntryIsKeptWhenAskedTo() {
+        StripedLruCache<Integer> cache = new StripedLruCache<>(10);
+        cache.put("k", 2, (existing, update) -> false);
+
+        cache.put("k", 1, (existing, update) -> update < existing);
+        assertEquals(2, cache.get("k"));
+
+        cache.remove("k", 1);
+        assertEquals(2, cache.get("k"));
+        cache.remove("k", 2);
+        assertNull(cache.get("k"));
+    }
+}